@@ -0,0 +1,39 @@
+package com.mvc;
+
+import com.mvc.filters.SeedContext;
+import com.mvc.filters.structure.EndStructureFilter;
+import com.mvc.filters.structure.NetherStructureFilter;
+import com.mvc.filters.structure.OverworldStructureFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark {
+    private final SeedContext context = new SeedContext();
+    private final FilterProfile profile = FilterProfile.fromConfig();
+    private final OverworldStructureFilter overworldStructureFilter = new OverworldStructureFilter(context, profile);
+    private final NetherStructureFilter netherStructureFilter = new NetherStructureFilter(context, profile);
+    private final EndStructureFilter endStructureFilter = new EndStructureFilter(context, profile);
+    private long seed = 100_000_000L;
+
+    @Benchmark
+    public boolean overworldStructures() {
+        context.reset(seed++ & ((1L << 48) - 1));
+        return overworldStructureFilter.filterStructures();
+    }
+
+    @Benchmark
+    public boolean netherStructures() {
+        context.reset(seed++ & ((1L << 48) - 1));
+        return netherStructureFilter.filterStructures();
+    }
+
+    @Benchmark
+    public boolean endStructures() {
+        context.reset(seed++ & ((1L << 48) - 1));
+        return endStructureFilter.filterStructures();
+    }
+}
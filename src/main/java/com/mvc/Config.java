@@ -6,15 +6,67 @@ import com.seedfinding.mccore.version.MCVersion;
 import java.io.File;
 
 import static com.mvc.Config.FILTER_TYPE.*;
+import static com.mvc.Config.PHASE_TYPE.*;
+import static com.mvc.Config.PRECISION_TYPE.*;
+import static com.mvc.Config.RANK_TYPE.*;
+import static com.mvc.Config.TERRAIN_TYPE.*;
 
 public class Config {
     public static final int SEED_MATCHES = 100_000;
+    // NONE stops after SEED_MATCHES, otherwise the whole input is searched and only the TOP_K best scores are kept
+    public static final RANK_TYPE RANK = NONE;
+    public static final String RANK_COLUMN = ""; // for DISTANCE, a column of com.mvc.Results, empty sums every column
+    public static final int TOP_K = 1_000;
     public static final int LOG_DELAY = 10_000;
+    public static final int CHECKPOINT_DELAY = 600_000;
     public static final MCVersion VERSION = MCVersion.v1_16_1;
     public static final FILTER_TYPE FILTER = RANDOM;
+    // MAX_THREADS workers are started, THREADS of them take batches; CONTROL_FILE changes both at runtime
+    public static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int THREADS = MAX_THREADS;
+    public static final double CPU_BUDGET = 0; // cores the search may use, 0 for no limit
+    public static final boolean AUTO_SCALE = false; // park workers while other work keeps every core busy
+    public static final File CONTROL_FILE = new File("./src/main/resources/control.properties");
+    // seeds per batch handed to a worker, BATCH_QUEUE batches in flight before the source waits
+    public static final int BATCH_SIZE = 4096;
+    public static final int BATCH_QUEUE = MAX_THREADS * 4;
+    // RANDOM walks a keyed permutation of the 48 bit space, same key same order; give every machine its own index range
+    public static final long RANDOM_KEY = 0x5EEDF1D0L;
+    public static final long RANDOM_START = 0L;
+    public static final long RANDOM_END = 1L << 48;
+    public static final PHASE_TYPE PHASE = FULL;
+    public static final PRECISION_TYPE PRECISION = STANDARD;
+    // how the nether filter checks the way from spawn to the bastion, compare them with com.mvc.TerrainComparison
+    public static final TERRAIN_TYPE NETHER_TERRAIN = PATH;
+    public static final int VERIFY_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    // a fixed corpus run through every stage before the search starts, so short jobs reach full speed sooner; 0 ms skips it.
+    // Off until a measurement shows it pays for itself: compare the first minutes of a short job with and without it
+    public static final int WARM_UP_SEEDS = 50_000;
+    public static final long WARM_UP_MILLIS = 0;
+    // dry run, samples the configured search and reports expected throughput and time to SEED_MATCHES instead
+    public static final boolean ESTIMATE = false;
+    public static final int ESTIMATE_SAMPLES = 1_000_000;
+    public static final int ESTIMATE_SECONDS = 60;
+    public static final int ESTIMATE_BIOME_SAMPLES = 256;
+    public static final long ESTIMATE_WARM_UP_MILLIS = 10_000; // WarmUp pass before anything is timed
     public static final Dimension DIMENSION = Dimension.NETHER;
     public static final File INPUT_FILE = new File("./src/main/resources/input.txt");
+    // "-" writes matches to stdout, status then goes to stderr
     public static final File OUTPUT_FILE = new File("./src/main/resources/nether_seeds_terrain.txt");
+    public static final File STRUCTURE_STORE = new File("./src/main/resources/structure_store");
+    // matches are also kept in an indexed, deduplicated store queried with com.mvc.Results, one subdirectory per
+    // dimension and filter configuration, e.g. new File("./src/main/resources/result_store"); a store loads every
+    // seed it holds when a run opens it. null turns it off, a profile's results key still picks a store of its own
+    public static final File RESULT_STORE = null;
+    // structure seeds checked by earlier runs with the same filter configuration are skipped, e.g.
+    // new File("./src/main/resources/checked_index"); outputs are appended to while it is on, their
+    // earlier lines hold the matches of the skipped seeds. null turns it off
+    public static final File CHECKED_INDEX = null;
+    public static final long CHECKED_BLOOM_BITS = 1L << 30; // FILE and STDIN seeds, 128 MiB for about 1% false positives at 100 million seeds
+    public static final int CHECKED_BLOOM_HASHES = 7;
+    public static final int CHECKED_PENDING = 1 << 22; // sparse seeds held until a checkpoint, a full buffer forces one
+    // extra filter profiles searched in the same pass, empty means a single profile from the constants below
+    public static final File[] PROFILES = {};
     public static final int VILLAGE_DISTANCE = 12;
     public static final int TEMPLE_DISTANCE = 12;
     public static final int OUTPOST_DISTANCE = 64;
@@ -22,10 +74,36 @@ public class Config {
     public static final int BASTION_DISTANCE = 10;
     public static final int FORTRESS_DISTANCE = 10;
     public static final int END_CITY_DISTANCE = 3;
+    public static final int MIDGAME_TEMPLES = 5;
 
     public enum FILTER_TYPE {
-        FILE,
+        FILE, // seeds read from INPUT_FILE, which may be a named pipe
+        STDIN, // seeds piped in, e.g. from an external generator or another run's output
         INCREMENTAL,
         RANDOM
     }
+
+    public enum PHASE_TYPE {
+        FULL, // structure and biome stage in one run
+        STRUCTURE, // structure stage only, passing seeds go to STRUCTURE_STORE
+        BIOME // biome stage only, seeds come from STRUCTURE_STORE
+    }
+
+    public enum PRECISION_TYPE {
+        STANDARD, // the capped, sampled checks in one pass
+        TIERED // looser first pass for recall, survivors verified exactly on VERIFY_THREADS
+    }
+
+    public enum RANK_TYPE {
+        NONE,
+        PATH_COST, // cheapest route to the bastion
+        DISTANCE, // closest structures or biomes
+        MIDGAME_TEMPLES // most midgame temples
+    }
+
+    public enum TERRAIN_TYPE {
+        PATH, // A* over walkable chunks, weighted by biome
+        AIR_SAMPLING, // random air samples in every chunk on the way
+        HEIGHT_CHECK // open gaps in columns on the straight line
+    }
 }
@@ -0,0 +1,256 @@
+package com.mvc;
+
+import com.mvc.util.ConfigurationTag;
+import com.seedfinding.mccore.state.Dimension;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+/*
+Runtime description of one set of filter requirements. The constants in Config make up the
+default profile, extra profiles are loaded from .properties files listed in Config.PROFILES
+so several targets can be searched in the same pass over the seeds, e.g.
+
+name=close_bastion
+dimension=NETHER
+output=./src/main/resources/close_bastion.txt
+results=none
+bastion_distance=6
+fortress_distance=8
+terrain=HEIGHT_CHECK
+rank=PATH_COST
+top_k=500
+*/
+public class FilterProfile {
+    // no results key, the store under Config.RESULT_STORE for the profile's dimension and filters
+    private static final File DEFAULT_RESULT_STORE = new File("");
+
+    private final String name;
+    private final Dimension dimension;
+    private final File outputFile;
+    private final File structureStore;
+    private final File resultStore;
+    private final Config.PRECISION_TYPE precision;
+    private final Config.TERRAIN_TYPE terrain;
+    private final Config.RANK_TYPE rank;
+    private final String rankColumn;
+    private final int topK;
+    private final int seedMatches;
+    private final int villageDistance;
+    private final int templeDistance;
+    private final int outpostDistance;
+    private final int monumentDistance;
+    private final int bastionDistance;
+    private final int fortressDistance;
+    private final int endCityDistance;
+    private final int midgameTemples;
+
+    private FilterProfile(String name, Dimension dimension, File outputFile, File structureStore, File resultStore,
+                          Config.PRECISION_TYPE precision, Config.TERRAIN_TYPE terrain,
+                          Config.RANK_TYPE rank, String rankColumn, int topK, int seedMatches,
+                          int villageDistance, int templeDistance, int outpostDistance, int monumentDistance,
+                          int bastionDistance, int fortressDistance, int endCityDistance, int midgameTemples) {
+        this.name = name;
+        this.dimension = dimension;
+        this.outputFile = outputFile;
+        this.structureStore = structureStore;
+        this.precision = precision;
+        this.terrain = terrain;
+        this.rank = rank;
+        this.rankColumn = rankColumn;
+        this.topK = topK;
+        this.seedMatches = seedMatches;
+        this.villageDistance = villageDistance;
+        this.templeDistance = templeDistance;
+        this.outpostDistance = outpostDistance;
+        this.monumentDistance = monumentDistance;
+        this.bastionDistance = bastionDistance;
+        this.fortressDistance = fortressDistance;
+        this.endCityDistance = endCityDistance;
+        this.midgameTemples = midgameTemples;
+        if (!rank.equals(Config.RANK_TYPE.NONE) && topK < 1) {
+            throw new IllegalArgumentException(this + ": top_k has to be at least 1, not " + topK);
+        }
+        // the BIOME phase reads structure seeds from the store, no route to the bastion is searched for them
+        if (rank.equals(Config.RANK_TYPE.PATH_COST) && Config.PHASE.equals(Config.PHASE_TYPE.BIOME)) {
+            throw new IllegalArgumentException(this + ": rank=PATH_COST needs the nether filter, run it in the FULL or STRUCTURE phase");
+        }
+        // last, the default store is named by the filter key of every other field
+        this.resultStore = resultStore == DEFAULT_RESULT_STORE ? getDefaultResultStore() : resultStore;
+    }
+
+    public static FilterProfile fromConfig() {
+        return new FilterProfile("default", Config.DIMENSION, Config.OUTPUT_FILE, Config.STRUCTURE_STORE, DEFAULT_RESULT_STORE,
+                Config.PRECISION, Config.NETHER_TERRAIN,
+                Config.RANK, Config.RANK_COLUMN, Config.TOP_K, Config.SEED_MATCHES,
+                Config.VILLAGE_DISTANCE, Config.TEMPLE_DISTANCE, Config.OUTPOST_DISTANCE, Config.MONUMENT_DISTANCE,
+                Config.BASTION_DISTANCE, Config.FORTRESS_DISTANCE, Config.END_CITY_DISTANCE, Config.MIDGAME_TEMPLES);
+    }
+
+    // keys missing from the file fall back to the Config constants
+    public static FilterProfile load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            properties.load(reader);
+        }
+
+        String fileName = file.getName();
+        String name = properties.getProperty("name", fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName);
+        Dimension dimension = Dimension.valueOf(properties.getProperty("dimension", Config.DIMENSION.name()).trim().toUpperCase());
+        File outputFile = new File(properties.getProperty("output", new File(Config.OUTPUT_FILE.getParentFile(), name + ".txt").getPath()));
+        File structureStore = new File(properties.getProperty("store", new File(Config.STRUCTURE_STORE, name).getPath()));
+        String results = properties.getProperty("results");
+        File resultStore = results == null ? DEFAULT_RESULT_STORE : results.trim().equals("none") ? null : new File(results.trim());
+
+        Config.PRECISION_TYPE precision = Config.PRECISION_TYPE.valueOf(properties.getProperty("precision", Config.PRECISION.name()).trim().toUpperCase());
+        Config.TERRAIN_TYPE terrain = Config.TERRAIN_TYPE.valueOf(properties.getProperty("terrain", Config.NETHER_TERRAIN.name()).trim().toUpperCase());
+        Config.RANK_TYPE rank = Config.RANK_TYPE.valueOf(properties.getProperty("rank", Config.RANK.name()).trim().toUpperCase());
+
+        return new FilterProfile(name, dimension, outputFile, structureStore, resultStore, precision, terrain,
+                rank, properties.getProperty("rank_column", Config.RANK_COLUMN).trim(), getInt(properties, "top_k", Config.TOP_K),
+                getInt(properties, "seed_matches", Config.SEED_MATCHES),
+                getInt(properties, "village_distance", Config.VILLAGE_DISTANCE),
+                getInt(properties, "temple_distance", Config.TEMPLE_DISTANCE),
+                getInt(properties, "outpost_distance", Config.OUTPOST_DISTANCE),
+                getInt(properties, "monument_distance", Config.MONUMENT_DISTANCE),
+                getInt(properties, "bastion_distance", Config.BASTION_DISTANCE),
+                getInt(properties, "fortress_distance", Config.FORTRESS_DISTANCE),
+                getInt(properties, "end_city_distance", Config.END_CITY_DISTANCE),
+                getInt(properties, "midgame_temples", Config.MIDGAME_TEMPLES));
+    }
+
+    public static FilterProfile[] loadAll() throws IOException {
+        return loadAll(Config.PROFILES);
+    }
+
+    // profile files given on the command line replace Config.PROFILES, so thresholds change without a rebuild
+    public static FilterProfile[] loadAll(String[] paths) throws IOException {
+        if (paths.length == 0) {
+            return loadAll();
+        }
+
+        File[] files = new File[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            files[i] = new File(paths[i]);
+        }
+        return loadAll(files);
+    }
+
+    private static FilterProfile[] loadAll(File[] files) throws IOException {
+        if (files.length == 0) {
+            return new FilterProfile[]{fromConfig()};
+        }
+
+        FilterProfile[] profiles = new FilterProfile[files.length];
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = load(files[i]);
+        }
+        return profiles;
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim().replace("_", ""));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    public File getStructureStore() {
+        return structureStore;
+    }
+
+    // null when matches only go to the output file
+    public File getResultStore() {
+        return resultStore;
+    }
+
+    // a store only ever holds matches of one dimension and filter configuration, so runs with other settings never mix into it
+    private File getDefaultResultStore() {
+        if (Config.RESULT_STORE == null) {
+            return null;
+        }
+        return new File(Config.RESULT_STORE, dimension.name().toLowerCase() + "_" + ConfigurationTag.of(Config.VERSION + " " + getFilterKey()));
+    }
+
+    public Config.PRECISION_TYPE getPrecision() {
+        return precision;
+    }
+
+    public Config.TERRAIN_TYPE getTerrain() {
+        return terrain;
+    }
+
+    public Config.RANK_TYPE getRank() {
+        return rank;
+    }
+
+    public String getRankColumn() {
+        return rankColumn;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public int getSeedMatches() {
+        return seedMatches;
+    }
+
+    public int getVillageDistance() {
+        return villageDistance;
+    }
+
+    public int getTempleDistance() {
+        return templeDistance;
+    }
+
+    public int getOutpostDistance() {
+        return outpostDistance;
+    }
+
+    public int getMonumentDistance() {
+        return monumentDistance;
+    }
+
+    public int getBastionDistance() {
+        return bastionDistance;
+    }
+
+    public int getFortressDistance() {
+        return fortressDistance;
+    }
+
+    public int getEndCityDistance() {
+        return endCityDistance;
+    }
+
+    public int getMidgameTemples() {
+        return midgameTemples;
+    }
+
+    // everything that decides which seeds pass, see CheckedSeedIndex
+    public String getFilterKey() {
+        return String.join(",", dimension.name(), precision.name(), terrain.name(),
+                Integer.toString(villageDistance), Integer.toString(templeDistance), Integer.toString(outpostDistance),
+                Integer.toString(monumentDistance), Integer.toString(bastionDistance), Integer.toString(fortressDistance),
+                Integer.toString(endCityDistance), Integer.toString(midgameTemples));
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + dimension + ")";
+    }
+}
@@ -1,136 +1,270 @@
 package com.mvc;
 
-import com.mvc.filters.biome.OverworldBiomeFilter;
-import com.mvc.filters.structure.EndStructureFilter;
-import com.mvc.filters.structure.NetherStructureFilter;
-import com.mvc.filters.structure.OverworldStructureFilter;
-import com.seedfinding.mccore.rand.ChunkRand;
-import com.seedfinding.mccore.state.Dimension;
-import com.seedfinding.mccore.util.data.Pair;
-import com.seedfinding.mccore.util.pos.BPos;
-
-import java.io.FileWriter;
+import com.mvc.engine.BatchQueue;
+import com.mvc.engine.Estimator;
+import com.mvc.engine.MatchSink;
+import com.mvc.engine.SeedWorker;
+import com.mvc.engine.Verifier;
+import com.mvc.engine.WarmUp;
+import com.mvc.engine.WorkerControl;
+import com.mvc.source.PermutedSeedSource;
+import com.mvc.source.RangeSeedSource;
+import com.mvc.source.SeedSource;
+import com.mvc.source.StoreSeedSource;
+import com.mvc.source.StreamSeedSource;
+import com.mvc.store.CheckedSeedIndex;
+import com.mvc.store.ProgressFile;
+import com.mvc.store.StructureSeedStore;
+import com.mvc.util.ConfigurationTag;
+import com.mvc.util.SeedPermutation;
+
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Main {
-    private static long seedsChecked = 0;
-    private static int seedMatches = 0;
+    private static final long INCREMENTAL_START = 100000000;
+    private static final LongAdder seedsChecked = new LongAdder();
+    private static long resumedSeeds = 0;
     private static long nextTime = 0;
+    private static long nextCheckpointTime = 0;
     private static long currentTime;
-    private static FileWriter output;
-    public static void main(String[] args) throws IOException {
-        initialize();
+    private static PrintStream status = System.out;
+    private static FilterProfile[] profiles;
+    private static StructureSeedStore[] structureStores;
+    private static long lastStructureSeed = -1;
+    private static MatchSink sink;
+    private static BatchQueue queue;
+    private static WorkerControl control;
+    private static CheckedSeedIndex checkedIndex;
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (Config.ESTIMATE) {
+            new Estimator(FilterProfile.loadAll(args), System.out).run();
+            return;
+        }
+        initialize(args);
+        if (Config.WARM_UP_MILLIS > 0) {
+            long start = System.nanoTime();
+            long seeds = new WarmUp(profiles).run(Config.THREADS, Config.WARM_UP_SEEDS, Config.WARM_UP_MILLIS);
+            status.printf("Warmed up on %,d seeds in %d ms%n", seeds, (System.nanoTime() - start) / 1_000_000);
+        }
 
-        if (Config.FILTER.equals(Config.FILTER_TYPE.FILE)) {
-            filterFile();
-        } else if (Config.FILTER.equals(Config.FILTER_TYPE.INCREMENTAL)) {
-            filterIncremental(100000000);
-        } else if (Config.FILTER.equals(Config.FILTER_TYPE.RANDOM)) {
-            filterRandom();
-        } else {
-            throw new RuntimeException("Define filter type as FILE or INCREMENTAL in com.mvc.Config");
+        queue = new BatchQueue(openSource(), Config.BATCH_SIZE, Config.BATCH_QUEUE);
+        sink.setSeedsDone(Main::getSeedsDone);
+        control = new WorkerControl(Config.MAX_THREADS, Config.THREADS, Config.CPU_BUDGET, Config.AUTO_SCALE, Config.CONTROL_FILE, status);
+        Verifier verifier = Verifier.isNeeded(profiles) ? new Verifier(profiles, Config.VERIFY_THREADS) : null;
+        SeedWorker[] workers = new SeedWorker[Config.MAX_THREADS];
+        Thread[] threads = new Thread[Config.MAX_THREADS];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new SeedWorker(queue, sink, control, verifier, i, profiles, seedsChecked, Config.PHASE.equals(Config.PHASE_TYPE.BIOME));
+            threads[i] = new Thread(workers[i], "seed-worker-" + i);
+            threads[i].start();
+        }
+        queue.start();
+
+        try {
+            awaitWorkers(workers, threads, verifier);
+        } catch (Throwable e) {
+            // no final checkpoint, the matches of the failed run are kept but a rerun checks its seeds again
+            try {
+                sink.abort();
+                if (checkedIndex != null) {
+                    checkedIndex.close();
+                }
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
         }
 
+        if (Config.FILTER.equals(Config.FILTER_TYPE.RANDOM) && queue.isExhausted() && !sink.isDone()) {
+            status.printf("Covered every seed with index %,d to %,d%n", Config.RANDOM_START, Math.min(Config.RANDOM_END, SeedPermutation.SIZE));
+        }
         finish();
     }
 
-    private static void filterFile() throws IOException {
-        Scanner scanner = new Scanner(Config.INPUT_FILE);
-
-        while (scanner.hasNextLong() && seedMatches < Config.SEED_MATCHES) {
-            checkSeed(scanner.nextLong());
+    // returns once every worker is finished and the source closed, throws the first failure of either
+    private static void awaitWorkers(SeedWorker[] workers, Thread[] threads, Verifier verifier) throws IOException, InterruptedException {
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(1000);
+                log();
+            }
+        }
+        if (verifier != null) {
+            verifier.shutdown();
         }
+        // before stop(), a source closed under a failing run reports its own error; the failing worker already stopped the queue
+        for (SeedWorker worker : workers) {
+            if (worker.getFailure() != null) {
+                throw new IOException("Seed worker failed", worker.getFailure());
+            }
+        }
+        queue.stop();
     }
 
-    private static void filterIncremental(long start) throws IOException {
-        while (seedMatches < Config.SEED_MATCHES) {
-            checkSeed(start & ((1L << 48) - 1));
-            start++;
+    // the seeds of this run, positioned after whatever a resumed run already checked
+    private static SeedSource openSource() throws IOException {
+        SeedSource source;
+        if (Config.PHASE.equals(Config.PHASE_TYPE.BIOME)) {
+            return new StoreSeedSource(structureStores[0], lastStructureSeed);
+        } else if (Config.FILTER.equals(Config.FILTER_TYPE.FILE)) {
+            source = new StreamSeedSource(new FileInputStream(Config.INPUT_FILE));
+        } else if (Config.FILTER.equals(Config.FILTER_TYPE.STDIN)) {
+            source = new StreamSeedSource(System.in);
+        } else if (Config.FILTER.equals(Config.FILTER_TYPE.INCREMENTAL)) {
+            source = new RangeSeedSource(INCREMENTAL_START, INCREMENTAL_START + (1L << 48));
+        } else if (Config.FILTER.equals(Config.FILTER_TYPE.RANDOM)) {
+            source = new PermutedSeedSource(new SeedPermutation(Config.RANDOM_KEY), Config.RANDOM_START, Config.RANDOM_END);
+        } else {
+            throw new RuntimeException("Define filter type as FILE, STDIN, INCREMENTAL or RANDOM in com.mvc.Config");
         }
+
+        source.skip(resumedSeeds);
+        return source;
     }
 
-    private static void filterIncremental() throws IOException {
-        filterIncremental(0L);
+    // seeds of the input with every seed before them checked, what a checkpoint may record
+    private static long getSeedsDone() {
+        return resumedSeeds + queue.getCompletedSeeds();
     }
 
-    private static void filterRandom() throws IOException {
-        Random random = new Random();
+    private static void log() throws IOException {
+        currentTime = System.currentTimeMillis();
+        control.update();
 
-        while (seedMatches < Config.SEED_MATCHES) {
-            checkSeed(random.nextLong() & ((1L << 48) - 1));
+        if (currentTime > nextTime) {
+            nextTime = currentTime + Config.LOG_DELAY;
+            status.printf("%,d seeds checked with %,d matches\r", resumedSeeds + seedsChecked.sum(), sink.getMatches());
+        }
+        if (currentTime > nextCheckpointTime) {
+            nextCheckpointTime = currentTime + Config.CHECKPOINT_DELAY;
+            checkpoint();
         }
     }
 
-    private static void checkSeed(long seed) throws IOException {
-        Long matchedStructureSeed = filterStructureSeed(seed) ? seed : null;
-
-        if (matchedStructureSeed != null) {
-            if (Config.DIMENSION.equals(Dimension.OVERWORLD)) {
-                for (long biomeSeed = 0; biomeSeed < (1L << 16); biomeSeed++) {
-                    long worldSeed = (biomeSeed << 48) | matchedStructureSeed;
-                    Pair<Boolean, ArrayList<BPos>> filteredWorldSeed = filterWorldSeed(worldSeed, matchedStructureSeed);
-                    Long matchedWorldSeed = filteredWorldSeed.getFirst() ? worldSeed : null;
+    private static void checkpoint() throws IOException {
+        long lastSeedDone = queue.getCompletedLastSeed();
+        sink.checkpoint(getSeedsDone(), lastSeedDone >= 0 ? lastSeedDone : lastStructureSeed);
+    }
 
-                    if (matchedWorldSeed != null) {
-                        output.write(matchedWorldSeed + " " + filteredWorldSeed.getSecond() + "\n");
-                        seedMatches++;
-                    }
-                }
-            } else {
-                output.write(matchedStructureSeed + "\n");
-                seedMatches++;
+    private static void initialize(String[] args) throws IOException {
+        profiles = FilterProfile.loadAll(args);
+        for (FilterProfile profile : profiles) {
+            if (MatchSink.isStdout(profile)) {
+                status = System.err; // keep stdout clean for the seeds
             }
         }
-        seedsChecked++;
+
+        status.println("Starting seed finding...");
+        nextTime = 0;
         currentTime = System.currentTimeMillis();
+        nextCheckpointTime = currentTime + Config.CHECKPOINT_DELAY;
 
-        if (currentTime > nextTime) {
-            nextTime = currentTime + Config.LOG_DELAY;
-            System.out.printf("%,d seeds checked with %,d matches\r", seedsChecked, seedMatches);
+        structureStores = new StructureSeedStore[profiles.length];
+        for (int p = 0; p < profiles.length; p++) {
+            structureStores[p] = new StructureSeedStore(profiles[p].getStructureStore(), profiles[p].getDimension());
+        }
+        if (profiles.length > 1) {
+            status.printf("Searching %d profiles in one pass%n", profiles.length);
         }
-    }
 
-    private static boolean filterStructureSeed(long structureSeed) {
-        ChunkRand chunkRand = new ChunkRand(structureSeed);
-
-        if (Config.DIMENSION.equals(Dimension.OVERWORLD)) {
-            OverworldStructureFilter overworldStructureFilter = new OverworldStructureFilter(structureSeed, chunkRand);
-            return overworldStructureFilter.filterStructures();
-        } else if (Config.DIMENSION.equals(Dimension.NETHER)) {
-            NetherStructureFilter netherStructureFilter = new NetherStructureFilter(structureSeed, chunkRand);
-            return netherStructureFilter.filterStructures();
-        } else if (Config.DIMENSION.equals(Dimension.END)) {
-            EndStructureFilter endStructureFilter = new EndStructureFilter(structureSeed, chunkRand);
-            return endStructureFilter.filterStructures();
+        if (Config.PHASE.equals(Config.PHASE_TYPE.STRUCTURE)) {
+            // every profile gets its own store, they all advance over the same input so share one progress value
+            StructureSeedStore.Writer[] structureWriters = new StructureSeedStore.Writer[profiles.length];
+            for (int p = 0; p < profiles.length; p++) {
+                structureWriters[p] = structureStores[p].openWriter();
+                resumedSeeds = p == 0 ? structureStores[p].loadProgress() : Math.min(resumedSeeds, structureStores[p].loadProgress());
+            }
+            sink = MatchSink.forStores(profiles, structureWriters);
+            if (resumedSeeds > 0) {
+                status.printf("Resuming structure phase after %,d seeds%n", resumedSeeds);
+            }
+        } else if (Config.PHASE.equals(Config.PHASE_TYPE.BIOME)) {
+            if (profiles.length != 1) {
+                throw new RuntimeException("The BIOME phase runs one profile per process, start one run per profile");
+            }
+            // every biome run keeps its own progress next to its output, so several can share one store
+            ProgressFile biomeProgress = new ProgressFile(new File(profiles[0].getOutputFile().getPath() + ".progress"));
+            lastStructureSeed = biomeProgress.read(-1L);
+            sink = MatchSink.forOutputs(profiles, biomeProgress.exists());
+            sink.setBiomeProgress(biomeProgress);
+            if (lastStructureSeed >= 0) {
+                status.printf("Resuming biome phase after structure seed %d%n", lastStructureSeed);
+            }
         } else {
-            OverworldStructureFilter overworldStructureFilter = new OverworldStructureFilter(structureSeed, chunkRand);
-            NetherStructureFilter netherStructureFilter = new NetherStructureFilter(structureSeed, chunkRand);
-            EndStructureFilter endStructureFilter = new EndStructureFilter(structureSeed, chunkRand);
-            return netherStructureFilter.filterStructures() && endStructureFilter.filterStructures() && overworldStructureFilter.filterStructures();
+            boolean resume = false;
+            ProgressFile randomProgress = null;
+            if (Config.FILTER.equals(Config.FILTER_TYPE.RANDOM)) {
+                // coverage of a random campaign is one index, tagged with the key, range and filter configuration it belongs to
+                String tag = ConfigurationTag.of(getConfiguration() + " " + Config.RANDOM_END);
+                randomProgress = new ProgressFile(new File(profiles[0].getOutputFile().getAbsoluteFile().getParentFile(),
+                        String.format("random_%x_%d_%s.progress", Config.RANDOM_KEY, Config.RANDOM_START, tag)));
+                resume = randomProgress.exists();
+                resumedSeeds = randomProgress.read(0L);
+                if (resume) {
+                    status.printf("Resuming random campaign at index %,d%n", Config.RANDOM_START + resumedSeeds);
+                }
+            }
+            // seeds the checked index skips have their matches in the existing outputs
+            sink = MatchSink.forOutputs(profiles, resume || Config.CHECKED_INDEX != null);
+            sink.setRandomProgress(randomProgress);
         }
-    }
 
-    private static Pair<Boolean, ArrayList<BPos>> filterWorldSeed(long worldSeed, long structureSeed) {
-        ChunkRand chunkRand = new ChunkRand(structureSeed);
-        OverworldBiomeFilter overworldBiomeFilter = new OverworldBiomeFilter(worldSeed, structureSeed, chunkRand);
+        if (Config.CHECKED_INDEX != null && !Config.PHASE.equals(Config.PHASE_TYPE.BIOME)) {
+            openCheckedIndex();
+        }
+    }
 
-        return overworldBiomeFilter.filterOverworld();
+    // everything that decides which seeds match, the same profiles in any order give the same configuration
+    private static String getConfiguration() {
+        ArrayList<String> keys = new ArrayList<>();
+        for (FilterProfile profile : profiles) {
+            keys.add(profile.getFilterKey());
+        }
+        Collections.sort(keys);
+        return Config.VERSION + " " + Config.PHASE + " " + String.join(" ", keys);
     }
 
-    private static void initialize() throws IOException {
-        System.out.println("Starting seed finding...");
-        seedsChecked = 0;
-        seedMatches = 0;
-        nextTime = 0;
-        currentTime = System.currentTimeMillis();
-        output = new FileWriter(Config.OUTPUT_FILE);
+    // one index per configuration
+    private static void openCheckedIndex() throws IOException {
+        checkedIndex = new CheckedSeedIndex(Config.CHECKED_INDEX, getConfiguration(), Config.CHECKED_BLOOM_BITS, Config.CHECKED_BLOOM_HASHES, Config.CHECKED_PENDING);
+        if (Config.FILTER.equals(Config.FILTER_TYPE.INCREMENTAL)) {
+            checkedIndex.setSeedCoverage(INCREMENTAL_START);
+        } else if (Config.FILTER.equals(Config.FILTER_TYPE.RANDOM)) {
+            checkedIndex.setPermutationCoverage(Config.RANDOM_KEY, Config.RANDOM_START);
+        }
+        sink.setCheckedIndex(checkedIndex);
     }
 
     private static void finish() throws IOException {
-        output.close();
-        System.out.printf("%,d seeds checked with %,d matches\r", seedsChecked, seedMatches);
+        checkpoint();
+        sink.close();
+        if (checkedIndex != null) {
+            checkedIndex.close();
+            if (checkedIndex.getSkipped() > 0) {
+                status.printf("Skipped %,d seeds earlier runs already checked%n", checkedIndex.getSkipped());
+            }
+        }
+        if (sink.isStructurePhase()) {
+            for (StructureSeedStore structureStore : structureStores) {
+                structureStore.compact();
+            }
+        }
+        status.printf("%,d seeds checked with %,d matches\r", resumedSeeds + seedsChecked.sum(), sink.getMatches());
+        if (profiles.length > 1) {
+            status.println();
+            for (int p = 0; p < profiles.length; p++) {
+                if (sink.isRanked(p)) {
+                    status.printf("%s: %,d matches, kept the best %,d%n", profiles[p], sink.getMatches(p), sink.getRanked(p));
+                } else {
+                    status.printf("%s: %,d matches%n", profiles[p], sink.getMatches(p));
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.mvc;
+
+import com.mvc.engine.MatchSink;
+import com.mvc.store.ResultStore;
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.state.Dimension;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+Command line for result stores, so post-processing no longer re-parses text output:
+
+    import <store> <OVERWORLD|NETHER|END> <file|->...   adds text results, duplicates are dropped
+    get <store> <seed>...                                 records of the given seeds
+    range <store> <from> <to>                             records with from <= seed <= to
+    near <store> <column> <blocks> [<column> <blocks>]... records with every column within blocks of 0 0
+    count <store>
+    compact <store>
+
+Records print in the text output format, so query results can be piped into another search.
+*/
+public class Results {
+    // one BPos of ArrayList<BPos>.toString()
+    private static final Pattern POSITION = Pattern.compile("x=(-?\\d+), y=-?\\d+, z=(-?\\d+)");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            usage();
+            return;
+        }
+
+        File directory = new File(args[1]);
+        switch (args[0]) {
+            case "import" -> importText(new ResultStore(directory, Dimension.valueOf(args[2].toUpperCase())), Arrays.copyOfRange(args, 3, args.length));
+            case "get" -> get(ResultStore.open(directory), Arrays.copyOfRange(args, 2, args.length));
+            case "range" -> range(ResultStore.open(directory), Long.parseLong(args[2]), Long.parseLong(args[3]));
+            case "near" -> near(ResultStore.open(directory), Arrays.copyOfRange(args, 2, args.length));
+            case "count" -> count(ResultStore.open(directory));
+            case "compact" -> ResultStore.open(directory).compact();
+            default -> usage();
+        }
+    }
+
+    private static void importText(ResultStore store, String[] files) throws IOException {
+        long added = 0;
+        long duplicates = 0;
+        long[] columns = new long[ResultStore.COLUMN_COUNT];
+
+        try (ResultStore.Writer writer = store.openWriter()) {
+            for (String file : files) {
+                try (BufferedReader reader = new BufferedReader(file.equals("-") ? new InputStreamReader(System.in) : new FileReader(file))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty()) {
+                            continue;
+                        }
+
+                        int end = line.indexOf(' ');
+                        long seed;
+                        try {
+                            seed = Long.parseLong(end < 0 ? line : line.substring(0, end));
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+
+                        Arrays.fill(columns, PackedPos.NONE);
+                        Matcher matcher = POSITION.matcher(line);
+                        for (int i = 0; i < columns.length && matcher.find(); i++) {
+                            columns[i] = PackedPos.pack(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                        }
+                        if (writer.append(seed, columns)) {
+                            added++;
+                        } else {
+                            duplicates++;
+                        }
+                    }
+                }
+            }
+        }
+        System.err.printf("Imported %,d results, dropped %,d duplicates%n", added, duplicates);
+    }
+
+    private static void get(ResultStore store, String[] seeds) throws IOException {
+        long[] columns = new long[ResultStore.COLUMN_COUNT];
+        for (String seed : seeds) {
+            if (store.find(Long.parseLong(seed), columns)) {
+                System.out.println(MatchSink.format(store.getDimension(), Long.parseLong(seed), columns));
+            }
+        }
+    }
+
+    private static void range(ResultStore store, long from, long to) throws IOException {
+        long[] columns = new long[ResultStore.COLUMN_COUNT];
+        try (ResultStore.Reader reader = store.openReader()) {
+            while (reader.next() && reader.seed() <= to) {
+                if (reader.seed() >= from) {
+                    reader.columns(columns);
+                    System.out.println(MatchSink.format(store.getDimension(), reader.seed(), columns));
+                }
+            }
+        }
+    }
+
+    private static void near(ResultStore store, String[] conditions) throws IOException {
+        String[] names = store.getColumnNames();
+        int[] conditionColumns = new int[conditions.length / 2];
+        int[] conditionDistances = new int[conditions.length / 2];
+        for (int c = 0; c < conditionColumns.length; c++) {
+            conditionColumns[c] = Arrays.asList(names).indexOf(conditions[c * 2]);
+            if (conditionColumns[c] < 0) {
+                throw new IllegalArgumentException("Unknown column " + conditions[c * 2] + ", " + store.getDimension() + " results have " + Arrays.toString(names));
+            }
+            conditionDistances[c] = Integer.parseInt(conditions[c * 2 + 1]);
+        }
+
+        long[] columns = new long[ResultStore.COLUMN_COUNT];
+        try (ResultStore.Reader reader = store.openReader()) {
+            next:
+            while (reader.next()) {
+                reader.columns(columns);
+                for (int c = 0; c < conditionColumns.length; c++) {
+                    if (!PackedPos.isWithin(columns[conditionColumns[c]], conditionDistances[c])) {
+                        continue next;
+                    }
+                }
+                System.out.println(MatchSink.format(store.getDimension(), reader.seed(), columns));
+            }
+        }
+    }
+
+    private static void count(ResultStore store) throws IOException {
+        long count = 0;
+        try (ResultStore.Reader reader = store.openReader()) {
+            while (reader.next()) {
+                count++;
+            }
+        }
+        System.out.println(count);
+    }
+
+    private static void usage() {
+        System.err.println("usage: Results import <store> <OVERWORLD|NETHER|END> <file|->...");
+        System.err.println("       Results get <store> <seed>...");
+        System.err.println("       Results range <store> <from> <to>");
+        System.err.println("       Results near <store> <column> <blocks> [<column> <blocks>]...");
+        System.err.println("       Results count <store>");
+        System.err.println("       Results compact <store>");
+    }
+}
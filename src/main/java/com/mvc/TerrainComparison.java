@@ -0,0 +1,157 @@
+package com.mvc;
+
+import com.mvc.filters.SeedContext;
+import com.mvc.filters.structure.NetherStructureFilter;
+import com.mvc.filters.terrain.AirSamplingTerrainStrategy;
+import com.mvc.filters.terrain.HeightCheckTerrainStrategy;
+import com.mvc.filters.terrain.NetherTerrainStrategy;
+import com.mvc.filters.terrain.PathTerrainStrategy;
+import com.mvc.source.StreamSeedSource;
+import com.mvc.util.PackedPos;
+import com.mvc.util.SeedPermutation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+Runs every nether terrain strategy on the same corpus of seeds and reports what each costs and
+how often they agree:
+
+    TerrainComparison [<count>|<seed file>] [<profile>]
+
+A count builds the corpus from the first seeds of a fixed permutation that pass the checks
+before terrain (bastion, fortress, soul sand valley), so the same count on the same profile is
+always the same corpus. A seed file is read like FILTER_TYPE.FILE input, seeds failing those
+checks are left out. Distances come from the profile, Config when none is given.
+
+Every strategy gets a freshly reset context per seed, so its cost includes the terrain it
+generates and none of it is shared with the strategy before. Exact path search is the reference
+the others' recall and precision are measured against.
+*/
+public class TerrainComparison {
+    private static final long CORPUS_KEY = 0x7E77A1L;
+    private static final int DEFAULT_CORPUS = 1000;
+    private static final int WARM_UP = 100;
+    private static final String[] NAMES = {"path", "path_approximate", "path_exact", "air_sampling", "height_check"};
+    private static final int REFERENCE = 2;
+
+    public static void main(String[] args) throws IOException {
+        FilterProfile profile = args.length > 1 ? FilterProfile.load(new File(args[1])) : FilterProfile.fromConfig();
+        int bastionDistance = profile.getBastionDistance();
+        NetherTerrainStrategy[] strategies = {
+                PathTerrainStrategy.standard(bastionDistance),
+                PathTerrainStrategy.approximate(bastionDistance),
+                PathTerrainStrategy.exact(bastionDistance),
+                new AirSamplingTerrainStrategy(),
+                new HeightCheckTerrainStrategy()
+        };
+
+        SeedContext context = new SeedContext();
+        NetherStructureFilter filter = new NetherStructureFilter(context, profile);
+        long[] corpus = args.length > 0 && !args[0].matches("\\d+") ? readCorpus(args[0], context, filter) :
+                buildCorpus(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CORPUS, context, filter);
+        if (corpus.length == 0) {
+            System.err.println("No seed in the corpus passes the checks before terrain");
+            return;
+        }
+        System.out.printf("Comparing %d terrain strategies on %,d seeds, bastion distance %d%n", strategies.length, corpus.length, bastionDistance);
+
+        boolean[][] passed = new boolean[strategies.length][corpus.length];
+        long[] nanos = new long[strategies.length];
+        run(strategies, Arrays.copyOf(corpus, Math.min(WARM_UP, corpus.length)), context, filter, new boolean[strategies.length][corpus.length], new long[strategies.length]);
+        run(strategies, corpus, context, filter, passed, nanos);
+        report(corpus.length, passed, nanos);
+    }
+
+    private static long[] buildCorpus(int count, SeedContext context, NetherStructureFilter filter) {
+        SeedPermutation permutation = new SeedPermutation(CORPUS_KEY);
+        long[] corpus = new long[count];
+        int size = 0;
+        for (long index = 0; size < count && index < SeedPermutation.SIZE; index++) {
+            long seed = permutation.seedAt(index);
+            context.reset(seed);
+            if (filter.filterLayout()) {
+                corpus[size++] = seed;
+            }
+        }
+        return Arrays.copyOf(corpus, size);
+    }
+
+    private static long[] readCorpus(String file, SeedContext context, NetherStructureFilter filter) throws IOException {
+        long[] corpus = new long[1024];
+        long[] batch = new long[Config.BATCH_SIZE];
+        int size = 0;
+        int count;
+        try (StreamSeedSource source = new StreamSeedSource(new FileInputStream(file))) {
+            while ((count = source.next(batch)) >= 0) {
+                for (int i = 0; i < count; i++) {
+                    context.reset(batch[i]);
+                    if (!filter.filterLayout()) {
+                        continue;
+                    }
+                    if (size == corpus.length) {
+                        corpus = Arrays.copyOf(corpus, size * 2);
+                    }
+                    corpus[size++] = batch[i];
+                }
+            }
+        }
+        return Arrays.copyOf(corpus, size);
+    }
+
+    private static void run(NetherTerrainStrategy[] strategies, long[] corpus, SeedContext context, NetherStructureFilter filter,
+                            boolean[][] passed, long[] nanos) {
+        for (int i = 0; i < corpus.length; i++) {
+            for (int s = 0; s < strategies.length; s++) {
+                context.reset(corpus[i]);
+                filter.filterLayout();
+                int bastionX = PackedPos.x(filter.getBastionPos());
+                int bastionZ = PackedPos.z(filter.getBastionPos());
+
+                long start = System.nanoTime();
+                passed[s][i] = strategies[s].canReachBastion(context.getNetherTerrainSampler(), bastionX, bastionZ);
+                nanos[s] += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private static void report(int seeds, boolean[][] passed, long[] nanos) {
+        System.out.printf("%n%-18s %8s %12s %8s %10s%n", "strategy", "passes", "us/seed", "recall", "precision");
+        for (int s = 0; s < NAMES.length; s++) {
+            int passes = 0;
+            int truePasses = 0;
+            int referencePasses = 0;
+            for (int i = 0; i < seeds; i++) {
+                passes += passed[s][i] ? 1 : 0;
+                truePasses += passed[s][i] && passed[REFERENCE][i] ? 1 : 0;
+                referencePasses += passed[REFERENCE][i] ? 1 : 0;
+            }
+            System.out.printf("%-18s %7.1f%% %12.1f %s %s%n", NAMES[s], 100.0 * passes / seeds, nanos[s] / 1e3 / seeds,
+                    formatRate(truePasses, referencePasses, 8), formatRate(truePasses, passes, 10));
+        }
+
+        // share of seeds two strategies decide the same way
+        System.out.printf("%nAgreement%n%-18s", "");
+        for (String name : NAMES) {
+            System.out.printf(" %17s", name);
+        }
+        System.out.println();
+        for (int a = 0; a < NAMES.length; a++) {
+            System.out.printf("%-18s", NAMES[a]);
+            for (int b = 0; b < NAMES.length; b++) {
+                int agree = 0;
+                for (int i = 0; i < seeds; i++) {
+                    agree += passed[a][i] == passed[b][i] ? 1 : 0;
+                }
+                System.out.printf(" %16.1f%%", 100.0 * agree / seeds);
+            }
+            System.out.println();
+        }
+    }
+
+    private static String formatRate(int count, int total, int width) {
+        return total == 0 ? String.format("%" + width + "s", "-") : String.format("%" + (width - 1) + ".1f%%", 100.0 * count / total);
+    }
+}
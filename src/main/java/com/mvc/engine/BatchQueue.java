@@ -0,0 +1,176 @@
+package com.mvc.engine;
+
+import com.mvc.source.SeedSource;
+import com.mvc.util.PackedPos;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/*
+Moves seeds from a SeedSource to the filter workers. A fixed pool of long[] batches circulates
+between a producer thread and the workers: the producer blocks once every batch is filled and
+waiting, so a fast source never runs ahead of the filters, and no batch is ever allocated after
+start-up.
+
+Workers may finish batches out of order. Completed batches are tracked by sequence number so
+getCompletedSeeds() only counts the contiguous prefix of the input that is fully checked, which
+is what checkpoints record. A worker that stops inside a batch, because every profile is done,
+ends that prefix: only the seeds it checked count, and no batch after it counts at all. A batch
+finished ahead of that prefix is held back until the prefix catches up, so one slow batch also
+throttles the producer.
+*/
+public class BatchQueue {
+    private final SeedSource source;
+    private final int capacity;
+    private final ArrayBlockingQueue<Batch> free;
+    private final ArrayBlockingQueue<Batch> filled;
+    private final Thread producer;
+    private final Batch[] completed;
+    private long nextCompleted = 0;
+    private long completedSeeds = 0;
+    private long completedLastSeed = -1;
+    private boolean prefixEnded = false;
+    private volatile boolean exhausted = false;
+    private volatile boolean stopped = false;
+    private volatile IOException failure;
+
+    public BatchQueue(SeedSource source, int batchSize, int capacity) {
+        this.source = source;
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.filled = new ArrayBlockingQueue<>(capacity + 1);
+        this.completed = new Batch[capacity];
+        for (int i = 0; i < capacity; i++) {
+            free.add(new Batch(batchSize, source.getPositionCount()));
+        }
+        this.producer = new Thread(this::produce, "seed-source");
+        this.producer.setDaemon(true);
+    }
+
+    public void start() {
+        producer.start();
+    }
+
+    // next batch to check, null once the source is exhausted or the queue stopped
+    public Batch take() throws InterruptedException {
+        Batch batch = filled.take();
+        if (batch == Batch.END || stopped) {
+            filled.offer(Batch.END); // leave it for the other workers
+            return null;
+        }
+        return batch;
+    }
+
+    /*
+    Hands a batch back with its first checked seeds done. It is only refilled once every batch
+    before it is checked too, so the sequences in flight never span more than capacity and each
+    owns its completion slot.
+    */
+    public synchronized void release(Batch batch, int checked) {
+        batch.checked = checked;
+        completed[(int) (batch.sequence % capacity)] = batch;
+
+        Batch next;
+        while ((next = completed[(int) (nextCompleted % capacity)]) != null) {
+            completed[(int) (nextCompleted % capacity)] = null;
+            if (!prefixEnded) {
+                completedSeeds += next.checked;
+                if (next.checked > 0) {
+                    completedLastSeed = next.seeds[next.checked - 1];
+                }
+                prefixEnded = next.checked < next.size;
+            }
+            nextCompleted++;
+            free.add(next);
+        }
+    }
+
+    // seeds of the input that are checked with nothing unchecked before them
+    public synchronized long getCompletedSeeds() {
+        return completedSeeds;
+    }
+
+    // last seed of that prefix, -1 before the first batch completes; meaningful for sorted sources
+    public synchronized long getCompletedLastSeed() {
+        return completedLastSeed;
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    // also called by a failing worker, every worker waiting for a batch gets null
+    public synchronized void stop() throws IOException {
+        if (!stopped) {
+            stopped = true;
+            producer.interrupt();
+            filled.offer(Batch.END);
+            source.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void produce() {
+        long sequence = 0;
+        try {
+            while (true) {
+                Batch batch = free.take();
+                int size = source.next(batch.seeds, batch.positions);
+                if (size < 0) {
+                    break;
+                }
+                batch.size = size;
+                batch.sequence = sequence++;
+                filled.put(batch);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        exhausted = true;
+        filled.add(Batch.END);
+    }
+
+    public static class Batch {
+        private static final Batch END = new Batch(0, 0);
+
+        private final long[] seeds;
+        private final long[] positions;
+        private final int positionCount;
+        private int size;
+        private int checked;
+        private long sequence;
+
+        private Batch(int capacity, int positionCount) {
+            this.seeds = new long[capacity];
+            this.positions = positionCount > 0 ? new long[capacity * positionCount] : null;
+            this.positionCount = positionCount;
+        }
+
+        public long get(int index) {
+            return seeds[index];
+        }
+
+        // the positions the source stored with a seed, PackedPos.NONE when it stores none
+        public void positions(int index, long[] target) {
+            if (positions == null) {
+                Arrays.fill(target, PackedPos.NONE);
+            } else {
+                System.arraycopy(positions, index * positionCount, target, 0, positionCount);
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+}
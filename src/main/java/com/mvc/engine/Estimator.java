@@ -0,0 +1,356 @@
+package com.mvc.engine;
+
+import com.mvc.Config;
+import com.mvc.FilterProfile;
+import com.mvc.util.SeedPermutation;
+import com.seedfinding.mccore.state.Dimension;
+
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+
+/*
+Dry run of a search. Warms up with WarmUp, then samples structure seeds spread over the whole
+space and runs them through the same SeedWorker stages a search runs, one check at a time: every
+check of a profile's structure stage (see FilterPlan.getStages) is timed and counts the seeds
+that reach and pass it. Then it extrapolates:
+
+    structure pass rate = product of the checks' pass rates, each among the seeds that reached it
+    cost per seed       = structure stage + P(an overworld profile passes) * 65,536 * biome stage
+    matches per seed    = structure pass rate, times 65,536 * biome pass rate for overworld profiles
+
+so a filter too rare for any sampled seed to pass every check still gets an estimate, as long
+as some seeds get through each check on their own.
+
+The biome stage is sampled with ESTIMATE_BIOME_SAMPLES random biome seeds per passing structure
+seed rather than all 65,536, plus BIOME_STRIDE_SAMPLES on every BIOME_STRIDE-th seed whatever
+its structures: the biome checks do not look at the structure distances, and rare structure
+filters would otherwise leave the biome stage unmeasured. Intervals are 95%: Wilson intervals
+for pass rates, normal intervals for mean stage costs, combined pessimistic against optimistic end.
+*/
+public class Estimator {
+    private static final long BIOME_SEEDS = 1L << 16;
+    private static final int BIOME_STRIDE = 64;
+    private static final int BIOME_STRIDE_SAMPLES = 4;
+    private static final double Z = 1.96;
+
+    private final FilterProfile[] profiles;
+    private final PrintStream out;
+    private final boolean[] overworld;
+    private final String[][] stages;
+
+    public Estimator(FilterProfile[] profiles, PrintStream out) {
+        this.profiles = profiles;
+        this.out = out;
+        this.overworld = new boolean[profiles.length];
+        this.stages = new String[profiles.length][];
+        SeedWorker worker = new SeedWorker(profiles);
+        for (int p = 0; p < profiles.length; p++) {
+            overworld[p] = profiles[p].getDimension().equals(Dimension.OVERWORLD);
+            stages[p] = worker.getStages(p);
+        }
+    }
+
+    public void run() throws InterruptedException {
+        // nothing is timed before the filter paths are compiled
+        long warmUpStart = System.nanoTime();
+        long warmUpSeeds = new WarmUp(profiles).run(Config.THREADS, Config.WARM_UP_SEEDS, Config.ESTIMATE_WARM_UP_MILLIS);
+        out.printf("Warmed up on %,d seeds in %d ms%n", warmUpSeeds, (System.nanoTime() - warmUpStart) / 1_000_000);
+        out.printf("Estimating with up to %,d seeds or %d seconds on %d threads...%n",
+                Config.ESTIMATE_SAMPLES, Config.ESTIMATE_SECONDS, Config.THREADS);
+
+        // a permutation keyed apart from RANDOM_KEY, the samples are spread evenly and unrelated to a campaign
+        SeedPermutation permutation = new SeedPermutation(~Config.RANDOM_KEY);
+        long deadline = System.nanoTime() + Config.ESTIMATE_SECONDS * 1_000_000_000L;
+        Sample[] samples = new Sample[Config.THREADS];
+        Thread[] threads = new Thread[Config.THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            samples[t] = new Sample(stages);
+            Sample sample = samples[t];
+            int offset = t;
+            threads[t] = new Thread(() -> sample(sample, permutation, offset, threads.length, deadline), "estimator-" + t);
+            threads[t].start();
+        }
+
+        Sample total = new Sample(stages);
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total.add(samples[t]);
+        }
+        report(total);
+    }
+
+    private void sample(Sample sample, SeedPermutation permutation, long offset, long stride, long deadline) {
+        SeedWorker worker = new SeedWorker(profiles);
+        SplittableRandom random = new SplittableRandom(offset);
+        boolean[] passed = new boolean[profiles.length];
+        int allTemples = Integer.MAX_VALUE;
+        for (int p = 0; p < profiles.length; p++) {
+            if (overworld[p]) {
+                allTemples = Math.min(allTemples, profiles[p].getMidgameTemples());
+            }
+        }
+
+        for (long index = offset; index < Config.ESTIMATE_SAMPLES && System.nanoTime() < deadline; index += stride) {
+            long structureSeed = permutation.seedAt(index);
+
+            long seedStart = System.nanoTime();
+            worker.reset(structureSeed);
+            int minTemples = Integer.MAX_VALUE;
+            for (int p = 0; p < profiles.length; p++) {
+                passed[p] = true;
+                for (int s = 0; s < stages[p].length && passed[p]; s++) {
+                    long start = System.nanoTime();
+                    passed[p] = worker.filterStage(p, s);
+                    sample.stageCost[p][s].add(System.nanoTime() - start);
+                    if (passed[p]) {
+                        sample.stagePasses[p][s]++;
+                    }
+                }
+                if (passed[p]) {
+                    sample.structurePasses[p]++;
+                    if (overworld[p]) {
+                        minTemples = Math.min(minTemples, profiles[p].getMidgameTemples());
+                    }
+                }
+            }
+            sample.structureCost.add(System.nanoTime() - seedStart);
+            sample.seeds++;
+
+            if (minTemples != Integer.MAX_VALUE) {
+                sample.biomeSeeds++;
+                sampleBiomes(sample, worker, random, structureSeed, minTemples, passed, Config.ESTIMATE_BIOME_SAMPLES);
+            } else if (allTemples != Integer.MAX_VALUE && index / stride % BIOME_STRIDE == 0) {
+                sampleBiomes(sample, worker, random, structureSeed, allTemples, overworld, BIOME_STRIDE_SAMPLES);
+            }
+        }
+    }
+
+    // counts for the overworld profiles in counted, minTemples is the lowest threshold among them
+    private void sampleBiomes(Sample sample, SeedWorker worker, SplittableRandom random, long structureSeed, int minTemples, boolean[] counted, int count) {
+        for (int i = 0; i < count; i++) {
+            long worldSeed = ((long) random.nextInt((int) BIOME_SEEDS) << 48) | structureSeed;
+
+            long start = System.nanoTime();
+            int midgameTemples = worker.filterWorldSeed(worldSeed, minTemples);
+            sample.biomeCost.add(System.nanoTime() - start);
+
+            for (int p = 0; p < profiles.length; p++) {
+                if (overworld[p] && counted[p]) {
+                    sample.biomeSamples[p]++;
+                    if (midgameTemples >= profiles[p].getMidgameTemples()) {
+                        sample.biomePasses[p]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void report(Sample total) {
+        if (total.seeds == 0) {
+            out.println("No seeds sampled, raise ESTIMATE_SECONDS");
+            return;
+        }
+
+        double[][] structurePass = new double[profiles.length][];
+        double[] fanOut = new double[3];
+        for (int p = 0; p < profiles.length; p++) {
+            structurePass[p] = new double[]{1, 1, 1};
+            for (int s = 0; s < stages[p].length; s++) {
+                double[] stagePass = wilson(total.stagePasses[p][s], total.stageCost[p][s].count);
+                for (int i = 0; i < 3; i++) {
+                    structurePass[p][i] *= stagePass[i];
+                }
+            }
+            if (overworld[p]) {
+                for (int i = 0; i < 3; i++) {
+                    fanOut[i] = Math.min(1, fanOut[i] + structurePass[p][i]);
+                }
+            }
+        }
+
+        double[] structureCost = total.structureCost.interval();
+        double[] biomeCost = total.biomeCost.count > 0 ? total.biomeCost.interval() : new double[]{0, 0, 0};
+        double[] seedCost = new double[3];
+        for (int i = 0; i < 3; i++) {
+            seedCost[i] = structureCost[i] + fanOut[i] * BIOME_SEEDS * biomeCost[i];
+        }
+
+        out.printf("%,d seeds sampled, %,d world seeds through the biome stage%n", total.seeds, total.biomeCost.count);
+        out.printf("Structure stage: %s per seed%n", formatNanos(structureCost));
+        if (total.biomeCost.count > 0) {
+            out.printf("Biome stage:     %s per world seed, %s of seeds fan out to 65,536 world seeds%n",
+                    formatNanos(biomeCost), formatRate(fanOut));
+        } else if (hasOverworld()) {
+            out.println("Biome stage:     not reached, the fan-out cost is not measured and left out");
+        }
+        out.printf("Throughput:      %s seeds/sec per core, %s on %d threads%n",
+                formatRange(1e9 / seedCost[0], 1e9 / seedCost[2], 1e9 / seedCost[1]),
+                formatRange(Config.THREADS * 1e9 / seedCost[0], Config.THREADS * 1e9 / seedCost[2], Config.THREADS * 1e9 / seedCost[1]),
+                Config.THREADS);
+
+        for (int p = 0; p < profiles.length; p++) {
+            double[] matchRate = structurePass[p];
+            if (overworld[p]) {
+                double[] biomePass = wilson(total.biomePasses[p], total.biomeSamples[p]);
+                matchRate = new double[3];
+                for (int i = 0; i < 3; i++) {
+                    matchRate[i] = structurePass[p][i] * BIOME_SEEDS * biomePass[i];
+                }
+            }
+
+            // matches per hour on all threads, low end pairs the low match rate with the high cost
+            double[] perHour = new double[3];
+            for (int i = 0; i < 3; i++) {
+                perHour[i] = Config.THREADS * 3600e9 * matchRate[i] / seedCost[2 - i];
+            }
+
+            out.printf("%s%n", profiles[p]);
+            for (int s = 0; s < stages[p].length; s++) {
+                Cost cost = total.stageCost[p][s];
+                if (cost.count == 0) {
+                    out.printf("  %-20s not reached, raise ESTIMATE_SAMPLES%n", stages[p][s] + ":");
+                    continue;
+                }
+                out.printf("  %-20s %s (%,d of %,d), %s per check%n", stages[p][s] + ":", formatRate(wilson(total.stagePasses[p][s], cost.count)),
+                        total.stagePasses[p][s], cost.count, formatNanos(cost.interval()));
+            }
+            out.printf("  structure pass rate: %s, %,d of %,d sampled seeds passed every check%n", formatRate(structurePass[p]),
+                    total.structurePasses[p], total.seeds);
+            if (overworld[p]) {
+                out.printf("  biome pass rate:     %s (%,d of %,d)%n", formatRate(wilson(total.biomePasses[p], total.biomeSamples[p])),
+                        total.biomePasses[p], total.biomeSamples[p]);
+            }
+            out.printf("  matches/hour:        %s%n", formatRange(perHour[1], perHour[0], perHour[2]));
+            out.printf("  time per match:      %s on %d threads%n", formatRange(
+                    formatDuration(1 / perHour[1]), formatDuration(1 / perHour[2]), formatDuration(1 / perHour[0])), Config.THREADS);
+            out.printf("  %,d matches in:     %s%n", profiles[p].getSeedMatches(), formatRange(
+                    formatDuration(profiles[p].getSeedMatches() / perHour[1]),
+                    formatDuration(profiles[p].getSeedMatches() / perHour[2]),
+                    formatDuration(profiles[p].getSeedMatches() / perHour[0])));
+        }
+    }
+
+    private boolean hasOverworld() {
+        for (boolean isOverworld : overworld) {
+            if (isOverworld) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // {low, estimate, high} of a binomial proportion
+    private static double[] wilson(long passes, long trials) {
+        if (trials == 0) {
+            return new double[]{0, 0, 1};
+        }
+        double p = (double) passes / trials;
+        double denominator = 1 + Z * Z / trials;
+        double center = (p + Z * Z / (2 * trials)) / denominator;
+        double margin = Z * Math.sqrt(p * (1 - p) / trials + Z * Z / (4.0 * trials * trials)) / denominator;
+        return new double[]{Math.max(0, center - margin), p, Math.min(1, center + margin)};
+    }
+
+    private static String formatRate(double[] rate) {
+        return String.format("%.3g%% [%.3g%%, %.3g%%]", rate[1] * 100, rate[0] * 100, rate[2] * 100);
+    }
+
+    private static String formatNanos(double[] nanos) {
+        return String.format("%,.0f ns [%,.0f, %,.0f]", nanos[1], nanos[0], nanos[2]);
+    }
+
+    private static String formatRange(double estimate, double low, double high) {
+        return String.format("%,.1f [%,.1f, %,.1f]", estimate, low, high);
+    }
+
+    private static String formatRange(String estimate, String low, String high) {
+        return estimate + " [" + low + ", " + high + "]";
+    }
+
+    private static String formatDuration(double hours) {
+        if (Double.isInfinite(hours) || Double.isNaN(hours)) {
+            return "never";
+        } else if (hours < 1.0 / 60) {
+            return String.format("%.0f s", hours * 3600);
+        } else if (hours < 1) {
+            return String.format("%.1f min", hours * 60);
+        } else if (hours < 48) {
+            return String.format("%.1f h", hours);
+        } else if (hours < 24 * 365) {
+            return String.format("%.1f days", hours / 24);
+        }
+        return String.format("%.1f years", hours / (24 * 365));
+    }
+
+    // what one thread saw, merged once every thread is done
+    private static class Sample {
+        private long seeds;
+        private long biomeSeeds;
+        private final long[] structurePasses;
+        private final long[][] stagePasses;
+        private final Cost[][] stageCost;
+        private final long[] biomeSamples;
+        private final long[] biomePasses;
+        private final Cost structureCost = new Cost();
+        private final Cost biomeCost = new Cost();
+
+        // stage costs count the seeds that reached a stage too
+        private Sample(String[][] stages) {
+            structurePasses = new long[stages.length];
+            stagePasses = new long[stages.length][];
+            stageCost = new Cost[stages.length][];
+            biomeSamples = new long[stages.length];
+            biomePasses = new long[stages.length];
+            for (int p = 0; p < stages.length; p++) {
+                stagePasses[p] = new long[stages[p].length];
+                stageCost[p] = new Cost[stages[p].length];
+                for (int s = 0; s < stages[p].length; s++) {
+                    stageCost[p][s] = new Cost();
+                }
+            }
+        }
+
+        private void add(Sample other) {
+            seeds += other.seeds;
+            biomeSeeds += other.biomeSeeds;
+            for (int p = 0; p < structurePasses.length; p++) {
+                structurePasses[p] += other.structurePasses[p];
+                biomeSamples[p] += other.biomeSamples[p];
+                biomePasses[p] += other.biomePasses[p];
+                for (int s = 0; s < stagePasses[p].length; s++) {
+                    stagePasses[p][s] += other.stagePasses[p][s];
+                    stageCost[p][s].add(other.stageCost[p][s]);
+                }
+            }
+            structureCost.add(other.structureCost);
+            biomeCost.add(other.biomeCost);
+        }
+    }
+
+    // running mean and variance of a stage's cost in nanoseconds
+    private static class Cost {
+        private long count;
+        private double sum;
+        private double sumSquares;
+
+        private void add(long nanos) {
+            count++;
+            sum += nanos;
+            sumSquares += (double) nanos * nanos;
+        }
+
+        private void add(Cost other) {
+            count += other.count;
+            sum += other.sum;
+            sumSquares += other.sumSquares;
+        }
+
+        // {low, mean, high}
+        private double[] interval() {
+            double mean = sum / count;
+            double variance = Math.max(0, sumSquares / count - mean * mean);
+            double margin = Z * Math.sqrt(variance / count);
+            return new double[]{Math.max(0, mean - margin), mean, mean + margin};
+        }
+    }
+}
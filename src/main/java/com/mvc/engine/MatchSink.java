@@ -0,0 +1,347 @@
+package com.mvc.engine;
+
+import com.mvc.Config;
+import com.mvc.FilterProfile;
+import com.mvc.store.CheckedSeedIndex;
+import com.mvc.store.ProgressFile;
+import com.mvc.store.ResultStore;
+import com.mvc.store.StructureSeedStore;
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.state.Dimension;
+import com.seedfinding.mccore.util.pos.BPos;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+Where every worker's matches go: per profile output files, or the structure stores in the
+STRUCTURE phase. Writes are serialized here, match counts are readable without locking so
+workers can stop a profile as soon as it reaches its target.
+
+An output path of "-" writes to stdout, so one run can be piped into the next. Profiles with a
+result store record every match there too; a seed the store already holds, e.g. from an earlier
+run or another shard, is not stored twice but still written and counted, the output of a run
+always holds every match it found.
+
+Ranked profiles (see Ranking) never finish early. Workers merge the best matches of every batch
+into the profile's TopK, each checkpoint rewrites the output file with it best first, followed by
+the score, and keeps it next to the output as <output>.rank so a resumed run carries on with it.
+Their matches stay out of the result store, so a campaign's footprint is K entries however long
+it runs.
+*/
+public class MatchSink {
+    private final FilterProfile[] profiles;
+    private final Writer[] outputs;
+    private final StructureSeedStore.Writer[] structureWriters;
+    private final ResultStore.Writer[] resultWriters;
+    private final TopK[] rankings;
+    private final AtomicIntegerArray profileMatches;
+    private final AtomicLong seedMatches = new AtomicLong();
+    private ProgressFile biomeProgress;
+    private ProgressFile randomProgress;
+    private CheckedSeedIndex checkedIndex;
+    private LongSupplier seedsDone = () -> 0L;
+    // seedsDone when the first profile reached its seed_matches, -1 before; later seeds are not checked for every profile
+    private long coveredSeeds = -1;
+
+    private MatchSink(FilterProfile[] profiles, Writer[] outputs, StructureSeedStore.Writer[] structureWriters,
+                      ResultStore.Writer[] resultWriters, TopK[] rankings) {
+        this.profiles = profiles;
+        this.outputs = outputs;
+        this.structureWriters = structureWriters;
+        this.resultWriters = resultWriters;
+        this.rankings = rankings;
+        this.profileMatches = new AtomicIntegerArray(profiles.length);
+    }
+
+    public static MatchSink forOutputs(FilterProfile[] profiles, boolean append) throws IOException {
+        Writer[] outputs = new Writer[profiles.length];
+        ResultStore.Writer[] resultWriters = new ResultStore.Writer[profiles.length];
+        TopK[] rankings = new TopK[profiles.length];
+        for (int p = 0; p < profiles.length; p++) {
+            if (!profiles[p].getRank().equals(Config.RANK_TYPE.NONE)) {
+                rankings[p] = new TopK(profiles[p].getTopK());
+                if (append && !isStdout(profiles[p]) && getRankingFile(profiles[p]).isFile()) {
+                    rankings[p].read(getRankingFile(profiles[p]));
+                }
+                continue;
+            }
+
+            outputs[p] = openOutput(profiles[p], append);
+            if (profiles[p].getResultStore() != null) {
+                resultWriters[p] = new ResultStore(profiles[p].getResultStore(), profiles[p].getDimension()).openWriter();
+            }
+        }
+        return new MatchSink(profiles, outputs, null, resultWriters, rankings);
+    }
+
+    public static MatchSink forStores(FilterProfile[] profiles, StructureSeedStore.Writer[] structureWriters) {
+        return new MatchSink(profiles, new Writer[profiles.length], structureWriters, new ResultStore.Writer[profiles.length],
+                new TopK[profiles.length]);
+    }
+
+    public static boolean isStdout(FilterProfile profile) {
+        return profile.getOutputFile().getPath().equals("-");
+    }
+
+    private static Writer openOutput(FilterProfile profile, boolean append) throws IOException {
+        if (isStdout(profile)) {
+            return new OutputStreamWriter(System.out) {
+                @Override
+                public void close() throws IOException {
+                    flush(); // System.out stays open
+                }
+            };
+        }
+        return new FileWriter(profile.getOutputFile(), append);
+    }
+
+    private static File getRankingFile(FilterProfile profile) {
+        return new File(profile.getOutputFile().getPath() + ".rank");
+    }
+
+    // the line a search writes for a match with these result store columns
+    public static String format(Dimension dimension, long seed, long[] columns) {
+        if (!dimension.equals(Dimension.OVERWORLD)) {
+            return Long.toString(seed);
+        }
+
+        ArrayList<BPos> positions = new ArrayList<>();
+        for (long column : columns) {
+            if (column != PackedPos.NONE) {
+                positions.add(new BPos(PackedPos.x(column), 0, PackedPos.z(column)));
+            }
+        }
+        return seed + " " + positions;
+    }
+
+    // BIOME phase, checkpoints record the last structure seed finished
+    public void setBiomeProgress(ProgressFile biomeProgress) {
+        this.biomeProgress = biomeProgress;
+    }
+
+    // RANDOM campaign, checkpoints record how many permutation indices are finished
+    public void setRandomProgress(ProgressFile randomProgress) {
+        this.randomProgress = randomProgress;
+    }
+
+    // seeds earlier runs checked are skipped, this run's are added at every checkpoint
+    public void setCheckedIndex(CheckedSeedIndex checkedIndex) {
+        this.checkedIndex = checkedIndex;
+    }
+
+    // whether an earlier run with the same configuration already checked the seed
+    public boolean isChecked(long seed) {
+        return checkedIndex != null && checkedIndex.skip(seed);
+    }
+
+    // the first count seeds of a batch are checked and their matches written
+    public synchronized void addChecked(BatchQueue.Batch batch, int count) throws IOException {
+        if (checkedIndex == null) {
+            return;
+        }
+        // once a profile reached its seed_matches its matches are dropped, the seeds are not checked for the whole configuration
+        for (int p = 0; p < profiles.length; p++) {
+            if (isDone(p)) {
+                return;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (checkedIndex.isFull()) {
+                checkpoint(seedsDone.getAsLong(), -1);
+            }
+            checkedIndex.add(batch.get(i));
+        }
+    }
+
+    // progress written when a structure segment fills up between checkpoints
+    public void setSeedsDone(LongSupplier seedsDone) {
+        this.seedsDone = seedsDone;
+    }
+
+    public boolean isStructurePhase() {
+        return structureWriters != null;
+    }
+
+    // columns are the block positions kept in the result store, see ResultStore.getColumnNames
+    public synchronized void writeMatch(int profile, long seed, long[] columns, String line) throws IOException {
+        if (isDone(profile)) {
+            return;
+        }
+        if (resultWriters[profile] != null) {
+            resultWriters[profile].append(seed, columns);
+        }
+        outputs[profile].write(line);
+        profileMatches.incrementAndGet(profile);
+        seedMatches.incrementAndGet();
+        freezeCoverage(profile);
+    }
+
+    // the best matches of a worker's batch for a ranked profile, matches counts every match the batch found
+    public synchronized void mergeRanking(int profile, TopK best, int matches) {
+        rankings[profile].addAll(best);
+        profileMatches.addAndGet(profile, matches);
+        seedMatches.addAndGet(matches);
+    }
+
+    public boolean isRanked(int profile) {
+        return rankings[profile] != null;
+    }
+
+    // matches a ranked profile keeps
+    public synchronized int getRanked(int profile) {
+        return rankings[profile].size();
+    }
+
+    public synchronized void appendStructure(int profile, long seed, long[] positions) throws IOException {
+        if (isDone(profile)) {
+            return;
+        }
+        structureWriters[profile].append(seed, positions);
+        profileMatches.incrementAndGet(profile);
+        seedMatches.incrementAndGet();
+        freezeCoverage(profile);
+
+        if (structureWriters[profile].isFull()) {
+            checkpoint(seedsDone.getAsLong(), -1);
+        }
+    }
+
+    // the batches done so far wrote all their matches, every batch after them drops the done profile's
+    private void freezeCoverage(int profile) {
+        if (coveredSeeds < 0 && isDone(profile)) {
+            coveredSeeds = seedsDone.getAsLong();
+        }
+    }
+
+    // what the checked index may record of seedsDone
+    private long getCoveredSeeds(long seedsDone) {
+        return coveredSeeds < 0 ? seedsDone : Math.min(seedsDone, coveredSeeds);
+    }
+
+    public boolean isDone(int profile) {
+        return rankings[profile] == null && profileMatches.get(profile) >= profiles[profile].getSeedMatches();
+    }
+
+    public boolean isDone() {
+        for (int p = 0; p < profiles.length; p++) {
+            if (!isDone(p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getMatches(int profile) {
+        return profileMatches.get(profile);
+    }
+
+    public long getMatches() {
+        return seedMatches.get();
+    }
+
+    /*
+    seedsDone and lastSeedDone describe the prefix of the input that is fully checked. Store
+    segments can hold seeds past that prefix, a resumed run appends them again and the store
+    reader drops the duplicates.
+    */
+    public synchronized void checkpoint(long seedsDone, long lastSeedDone) throws IOException {
+        if (structureWriters != null) {
+            for (StructureSeedStore.Writer structureWriter : structureWriters) {
+                structureWriter.checkpoint(seedsDone);
+            }
+            if (checkedIndex != null) {
+                checkedIndex.checkpoint(getCoveredSeeds(seedsDone));
+            }
+            return;
+        }
+
+        for (int p = 0; p < profiles.length; p++) {
+            if (rankings[p] != null) {
+                writeRanking(p);
+                continue;
+            }
+            outputs[p].flush();
+            if (resultWriters[p] != null) {
+                resultWriters[p].flush();
+            }
+        }
+        if (checkedIndex != null) {
+            checkedIndex.checkpoint(getCoveredSeeds(seedsDone));
+        }
+        if (biomeProgress != null && lastSeedDone >= 0) {
+            biomeProgress.write(lastSeedDone);
+        } else if (randomProgress != null) {
+            randomProgress.write(seedsDone);
+        }
+    }
+
+    // after a failed run, keeps every match found so far but records no progress, so a rerun checks the rest again
+    public synchronized void abort() throws IOException {
+        if (structureWriters == null) {
+            close();
+            return;
+        }
+        for (StructureSeedStore.Writer structureWriter : structureWriters) {
+            structureWriter.flush();
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (structureWriters != null) {
+            for (StructureSeedStore.Writer structureWriter : structureWriters) {
+                structureWriter.close();
+            }
+            return;
+        }
+        for (int p = 0; p < profiles.length; p++) {
+            if (rankings[p] != null) {
+                writeRanking(p);
+                if (isStdout(profiles[p])) {
+                    Writer output = openOutput(profiles[p], false);
+                    printRanking(p, output);
+                    output.close();
+                }
+                continue;
+            }
+            outputs[p].close();
+            if (resultWriters[p] != null) {
+                resultWriters[p].close();
+            }
+        }
+    }
+
+    // stdout rankings are only printed on close
+    private void writeRanking(int profile) throws IOException {
+        if (isStdout(profiles[profile])) {
+            return;
+        }
+
+        rankings[profile].write(getRankingFile(profiles[profile]));
+        File output = profiles[profile].getOutputFile();
+        File tmp = new File(output.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new FileWriter(tmp))) {
+            printRanking(profile, writer);
+        }
+        Files.move(tmp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void printRanking(int profile, Writer writer) throws IOException {
+        TopK ranking = rankings[profile];
+        long[] columns = new long[ResultStore.COLUMN_COUNT];
+        for (int slot : ranking.sortedSlots()) {
+            ranking.columns(slot, columns);
+            writer.write(format(profiles[profile].getDimension(), ranking.seed(slot), columns) + " score=" + ranking.score(slot) + "\n");
+        }
+    }
+}
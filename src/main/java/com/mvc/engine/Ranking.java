@@ -0,0 +1,76 @@
+package com.mvc.engine;
+
+import com.mvc.Config;
+import com.mvc.FilterProfile;
+import com.mvc.store.ResultStore;
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.state.Dimension;
+
+import java.util.Arrays;
+
+/*
+Score of a match for a ranked profile, lower is better. Scores come from values the filters
+already produce for the match:
+
+PATH_COST        cost of the route to the bastion, nether only
+DISTANCE         block distance from spawn of the profile's rank_column, every column when it is empty
+MIDGAME_TEMPLES  temples in the midgame regions, more is better, overworld only
+*/
+public class Ranking {
+    private final Config.RANK_TYPE type;
+    private final int column;
+
+    private Ranking(Config.RANK_TYPE type, int column) {
+        this.type = type;
+        this.column = column;
+    }
+
+    // null for profiles that keep the first seed_matches matches instead
+    public static Ranking forProfile(FilterProfile profile) {
+        Config.RANK_TYPE type = profile.getRank();
+        Dimension dimension = profile.getDimension();
+        if (type.equals(Config.RANK_TYPE.NONE)) {
+            return null;
+        }
+        if (type.equals(Config.RANK_TYPE.PATH_COST) && !dimension.equals(Dimension.NETHER)
+                || type.equals(Config.RANK_TYPE.MIDGAME_TEMPLES) && !dimension.equals(Dimension.OVERWORLD)) {
+            throw new IllegalArgumentException(profile + " can not be ranked by " + type);
+        }
+
+        int column = -1;
+        if (type.equals(Config.RANK_TYPE.DISTANCE) && !profile.getRankColumn().isEmpty()) {
+            String[] names = ResultStore.getColumnNames(dimension);
+            column = Arrays.asList(names).indexOf(profile.getRankColumn());
+            if (column < 0) {
+                throw new IllegalArgumentException("Unknown rank column " + profile.getRankColumn() + ", " + dimension + " results have " + Arrays.toString(names));
+            }
+        }
+        return new Ranking(type, column);
+    }
+
+    // columns are block positions as in the result store
+    public double score(long[] columns, double pathCost, int midgameTemples) {
+        return switch (type) {
+            case PATH_COST -> pathCost;
+            case MIDGAME_TEMPLES -> -midgameTemples;
+            default -> column >= 0 ? distance(columns[column]) : totalDistance(columns);
+        };
+    }
+
+    private static double totalDistance(long[] columns) {
+        double distance = 0;
+        for (long position : columns) {
+            if (position != PackedPos.NONE) {
+                distance += distance(position);
+            }
+        }
+        return distance;
+    }
+
+    private static double distance(long position) {
+        if (position == PackedPos.NONE) {
+            return Double.MAX_VALUE;
+        }
+        return Math.sqrt((double) PackedPos.x(position) * PackedPos.x(position) + (double) PackedPos.z(position) * PackedPos.z(position));
+    }
+}
@@ -0,0 +1,305 @@
+package com.mvc.engine;
+
+import com.mvc.FilterProfile;
+import com.mvc.filters.FilterPlan;
+import com.mvc.filters.SeedContext;
+import com.mvc.filters.biome.OverworldBiomeFilter;
+import com.mvc.store.ResultStore;
+import com.mvc.store.StructureSeedStore;
+import com.mvc.util.PackedPos;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// One filter thread, owns its context and filters so nothing on the per seed path is shared
+public class SeedWorker implements Runnable {
+    private final BatchQueue queue;
+    private final MatchSink sink;
+    private final WorkerControl control;
+    private final int index;
+    private final FilterPlan[] plans;
+    private final LongAdder seedsChecked;
+    private final boolean biomePhase;
+    private final SeedContext context = new SeedContext();
+    private final OverworldBiomeFilter overworldBiomeFilter = new OverworldBiomeFilter(context);
+    private final long[][] structurePositions;
+    private final boolean[] structureMatches;
+    private final long[] columns = new long[ResultStore.COLUMN_COUNT];
+    private final Verifier verifier;
+    private final Ranking[] rankings;
+    private final TopK[] batchBest;
+    private final int[] batchMatches;
+    private final ArrayList<Verification> verifications = new ArrayList<>();
+    private volatile Exception failure;
+
+    // a worker that only runs single stages, see Estimator
+    public SeedWorker(FilterProfile[] profiles) {
+        this(null, null, null, null, 0, profiles, null, false);
+    }
+
+    // index: position among the workers, WorkerControl parks the ones at or past its active count
+    // biomePhase: seeds already passed the structure stage, only the biome stage runs
+    // verifier: second tier for TIERED profiles, null when no profile has one
+    public SeedWorker(BatchQueue queue, MatchSink sink, WorkerControl control, Verifier verifier, int index, FilterProfile[] profiles,
+                      LongAdder seedsChecked, boolean biomePhase) {
+        this.queue = queue;
+        this.verifier = verifier;
+        this.sink = sink;
+        this.control = control;
+        this.index = index;
+        this.seedsChecked = seedsChecked;
+        this.biomePhase = biomePhase;
+        this.plans = new FilterPlan[profiles.length];
+        this.structurePositions = new long[plans.length][StructureSeedStore.POSITION_COUNT];
+        this.structureMatches = new boolean[plans.length];
+        this.rankings = new Ranking[plans.length];
+        this.batchBest = new TopK[plans.length];
+        this.batchMatches = new int[plans.length];
+        for (int p = 0; p < profiles.length; p++) {
+            plans[p] = FilterPlan.compile(context, profiles[p]);
+            rankings[p] = Ranking.forProfile(profiles[p]);
+            if (rankings[p] != null) {
+                batchBest[p] = new TopK(profiles[p].getTopK());
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean cpuTime = threads.isCurrentThreadCpuTimeSupported();
+
+        try {
+            while (!sink.isDone()) {
+                // parking happens here, between batches, so a parked worker holds no seeds
+                control.awaitTurn(index, queue, sink);
+                BatchQueue.Batch batch = queue.take();
+                if (batch == null) {
+                    break;
+                }
+
+                long start = cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+                int done = 0;
+                try {
+                    int checked = 0;
+                    while (checked < batch.size() && !sink.isDone()) {
+                        long seed = batch.get(checked++);
+                        // seeds an earlier run checked are only counted
+                        if (!sink.isChecked(seed)) {
+                            if (biomePhase) {
+                                batch.positions(checked - 1, structurePositions[0]);
+                                checkStructureSeed(seed);
+                            } else {
+                                checkSeed(seed);
+                            }
+                        }
+                        seedsChecked.increment();
+                    }
+                    finishVerifications();
+                    mergeRankings();
+                    sink.addChecked(batch, checked);
+                    done = checked;
+                } finally {
+                    // a failed batch goes back with nothing done, so the queue keeps moving and no checkpoint passes it
+                    queue.release(batch, done);
+                }
+                control.throttle((cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime()) - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            // the producer and the other workers stop too, Main rethrows the failure
+            try {
+                queue.stop();
+            } catch (IOException stopFailure) {
+                e.addSuppressed(stopFailure);
+            }
+        }
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    private void checkSeed(long seed) throws IOException {
+        boolean needsBiomes = false;
+        long villagePos = PackedPos.NONE;
+        long templePos = PackedPos.NONE;
+        context.reset(seed);
+
+        for (int p = 0; p < plans.length; p++) {
+            structureMatches[p] = !sink.isDone(p) && plans[p].filterStructures(structurePositions[p]);
+            if (!structureMatches[p]) {
+                continue;
+            }
+
+            if (plans[p].needsVerification()) {
+                verifications.add(new Verification(p, seed, verifier.submit(p, seed)));
+            } else if (plans[p].needsBiomes() && !sink.isStructurePhase()) {
+                // every overworld profile finds the same village and temple, they only depend on the seed
+                needsBiomes = true;
+                villagePos = structurePositions[p][0];
+                templePos = structurePositions[p][1];
+            } else {
+                writeStructureMatch(p, seed, structurePositions[p], plans[p].getPathCost());
+            }
+        }
+
+        if (needsBiomes) {
+            checkBiomes(seed, villagePos, templePos);
+        }
+    }
+
+    private void writeStructureMatch(int profile, long seed, long[] positions, double pathCost) throws IOException {
+        if (sink.isStructurePhase()) {
+            sink.appendStructure(profile, seed, positions);
+            return;
+        }
+
+        // structure positions are chunk positions, the result store keeps blocks
+        Arrays.fill(columns, PackedPos.NONE);
+        for (int i = 0; i < StructureSeedStore.POSITION_COUNT; i++) {
+            long position = positions[i];
+            columns[i] = position == PackedPos.NONE ? position : PackedPos.pack(PackedPos.x(position) << 4, PackedPos.z(position) << 4);
+        }
+        if (rankings[profile] != null) {
+            rank(profile, seed, rankings[profile].score(columns, pathCost, 0));
+        } else {
+            sink.writeMatch(profile, seed, columns, seed + "\n");
+        }
+    }
+
+    // ranked profiles keep the batch's best matches here until mergeRankings
+    private void rank(int profile, long seed, double score) {
+        batchMatches[profile]++;
+        batchBest[profile].offer(score, seed, columns);
+    }
+
+    // before the batch is released, so a checkpoint past it includes its ranked matches
+    private void mergeRankings() {
+        for (int p = 0; p < plans.length; p++) {
+            if (batchMatches[p] > 0) {
+                sink.mergeRanking(p, batchBest[p], batchMatches[p]);
+                batchBest[p].clear();
+                batchMatches[p] = 0;
+            }
+        }
+    }
+
+    // waits for the batch's survivors before it is released, a checkpoint never passes an unverified seed
+    private void finishVerifications() throws IOException, InterruptedException {
+        for (Verification verification : verifications) {
+            try {
+                Verifier.Survivor survivor = verification.result.get();
+                if (survivor != null) {
+                    writeStructureMatch(verification.profile, verification.seed, survivor.getPositions(), survivor.getPathCost());
+                }
+            } catch (ExecutionException e) {
+                throw new IOException("Verification of " + verification.seed + " failed", e.getCause());
+            }
+        }
+        verifications.clear();
+    }
+
+    // BIOME phase, a single profile whose structure stage already passed; structurePositions[0] holds what the STRUCTURE phase stored
+    private void checkStructureSeed(long structureSeed) throws IOException {
+        context.reset(structureSeed);
+        structureMatches[0] = true;
+        long[] positions = structurePositions[0];
+        if (plans[0].needsBiomes()) {
+            checkBiomes(structureSeed, positions[0], positions[1]);
+        } else {
+            writeStructureMatch(0, structureSeed, positions, plans[0].getPathCost());
+        }
+    }
+
+    // biome fan-out for every overworld profile in structureMatches, the filter work is shared and only thresholds differ
+    private void checkBiomes(long matchedStructureSeed, long villagePos, long templePos) throws IOException {
+        int minTemples = Integer.MAX_VALUE;
+        for (int p = 0; p < plans.length; p++) {
+            if (structureMatches[p] && plans[p].needsBiomes()) {
+                minTemples = Math.min(minTemples, plans[p].getMidgameTemples());
+            }
+        }
+
+        for (long biomeSeed = 0; biomeSeed < (1L << 16); biomeSeed++) {
+            long worldSeed = (biomeSeed << 48) | matchedStructureSeed;
+            int midgameTemples = filterWorldSeed(worldSeed, villagePos, templePos, minTemples);
+            if (midgameTemples < 0) {
+                continue;
+            }
+
+            for (int p = 0; p < plans.length; p++) {
+                if (structureMatches[p] && plans[p].needsBiomes() && !sink.isDone(p)
+                        && midgameTemples >= plans[p].getMidgameTemples()) {
+                    for (int i = 0; i < OverworldBiomeFilter.COORDINATE_COUNT; i++) {
+                        columns[i] = overworldBiomeFilter.getCoordinate(i);
+                    }
+                    if (rankings[p] != null) {
+                        rank(p, worldSeed, rankings[p].score(columns, 0, midgameTemples));
+                    } else {
+                        sink.writeMatch(p, worldSeed, columns, worldSeed + " " + overworldBiomeFilter.getCoordinates() + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    // biome stage for one world seed, its midgame temples if it passes for minTemples, -1 otherwise
+    private int filterWorldSeed(long worldSeed, long villagePos, long templePos, int minTemples) {
+        overworldBiomeFilter.reset(worldSeed, villagePos, templePos);
+        int midgameTemples = overworldBiomeFilter.countMidgameTemples();
+        if (midgameTemples < minTemples || !overworldBiomeFilter.filterBiomes()) {
+            return -1;
+        }
+        return midgameTemples;
+    }
+
+    // single stages of checkSeed, so the estimator measures exactly what a search runs
+    public void reset(long structureSeed) {
+        context.reset(structureSeed);
+    }
+
+    // both tiers for TIERED profiles, inline
+    public boolean filterStructures(int profile) {
+        if (!plans[profile].filterStructures(structurePositions[profile])) {
+            return false;
+        }
+        return !plans[profile].needsVerification() || plans[profile].verify(structurePositions[profile]);
+    }
+
+    // the checks of a profile's structure stage in the order filterStage runs them
+    public String[] getStages(int profile) {
+        return plans[profile].getStages();
+    }
+
+    // one check of the structure stage, only after every earlier one passed on the same seed; TIERED profiles end with verification
+    public boolean filterStage(int profile, int stage) {
+        return plans[profile].filterStage(stage, structurePositions[profile]);
+    }
+
+    // call after filterStructures passed for an overworld profile on the same structure seed
+    public int filterWorldSeed(long worldSeed, int minTemples) {
+        return filterWorldSeed(worldSeed, PackedPos.NONE, PackedPos.NONE, minTemples);
+    }
+
+    // a first pass survivor waiting on the verifier
+    private static class Verification {
+        private final int profile;
+        private final long seed;
+        private final Future<Verifier.Survivor> result;
+
+        private Verification(int profile, long seed, Future<Verifier.Survivor> result) {
+            this.profile = profile;
+            this.seed = seed;
+            this.result = result;
+        }
+    }
+}
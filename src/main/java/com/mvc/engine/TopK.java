@@ -0,0 +1,209 @@
+package com.mvc.engine;
+
+import com.mvc.store.ResultStore;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/*
+The best K matches seen so far, lower score is better and ties go to the lower seed, so the
+kept set does not depend on the order seeds arrive in. Entries live in fixed slots of parallel
+primitive arrays and a binary heap of slot indices keeps the worst kept entry on top: a full
+heap rejects everything not better than it with one comparison, and nothing is allocated
+however many matches pass through. An open addressing table of slot indices by seed catches a
+seed offered twice, e.g. when batches are merged, without scanning the kept entries.
+*/
+public class TopK {
+    private static final int MAGIC = 0x544F504B;
+
+    private final int capacity;
+    private final double[] scores;
+    private final long[] seeds;
+    private final long[] columns;
+    private final int[] heap;
+    // slot + 1 of every kept seed by hash, 0 for an empty cell; linear probing, at most half full
+    private final int[] index;
+    private final int indexMask;
+    private int size;
+
+    public TopK(int capacity) {
+        this.capacity = capacity;
+        this.scores = new double[capacity];
+        this.seeds = new long[capacity];
+        this.columns = new long[capacity * ResultStore.COLUMN_COUNT];
+        this.heap = new int[capacity];
+        this.index = new int[Integer.highestOneBit(Math.max(1, capacity)) << 2];
+        this.indexMask = index.length - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(index, 0);
+    }
+
+    // whether offer() could keep this entry, checked before building anything for it
+    public boolean accepts(double score, long seed) {
+        return size < capacity || isBetter(score, seed, heap[0]);
+    }
+
+    // false when the entry is not among the best K or its seed is already kept
+    public boolean offer(double score, long seed, long[] entryColumns) {
+        if (!accepts(score, seed) || index[find(seed)] != 0) {
+            return false;
+        }
+
+        int slot = size < capacity ? size : heap[0];
+        if (size == capacity) {
+            remove(seeds[slot]);
+        }
+        scores[slot] = score;
+        seeds[slot] = seed;
+        index[find(seed)] = slot + 1;
+        System.arraycopy(entryColumns, 0, columns, slot * ResultStore.COLUMN_COUNT, ResultStore.COLUMN_COUNT);
+        if (size < capacity) {
+            heap[size] = slot;
+            siftUp(size++);
+        } else {
+            siftDown(0);
+        }
+        return true;
+    }
+
+    public void addAll(TopK other) {
+        long[] entryColumns = new long[ResultStore.COLUMN_COUNT];
+        for (int slot = 0; slot < other.size; slot++) {
+            other.columns(slot, entryColumns);
+            offer(other.scores[slot], other.seeds[slot], entryColumns);
+        }
+    }
+
+    // slots best first
+    public int[] sortedSlots() {
+        Integer[] order = new Integer[size];
+        for (int slot = 0; slot < size; slot++) {
+            order[slot] = slot;
+        }
+        Arrays.sort(order, (a, b) -> isBetter(scores[a], seeds[a], b) ? -1 : a.equals(b) ? 0 : 1);
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    public double score(int slot) {
+        return scores[slot];
+    }
+
+    public long seed(int slot) {
+        return seeds[slot];
+    }
+
+    public void columns(int slot, long[] out) {
+        System.arraycopy(columns, slot * ResultStore.COLUMN_COUNT, out, 0, ResultStore.COLUMN_COUNT);
+    }
+
+    // written atomically like the progress files, so a checkpoint never leaves half a ranking behind
+    public void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(size);
+            for (int slot = 0; slot < size; slot++) {
+                output.writeLong(seeds[slot]);
+                output.writeDouble(scores[slot]);
+                for (int c = 0; c < ResultStore.COLUMN_COUNT; c++) {
+                    output.writeLong(columns[slot * ResultStore.COLUMN_COUNT + c]);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // adds a ranking written by write(), a smaller capacity than before keeps the best of it
+    public void read(File file) throws IOException {
+        long[] entryColumns = new long[ResultStore.COLUMN_COUNT];
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a ranking");
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                long seed = input.readLong();
+                double score = input.readDouble();
+                for (int c = 0; c < entryColumns.length; c++) {
+                    entryColumns[c] = input.readLong();
+                }
+                offer(score, seed, entryColumns);
+            }
+        }
+    }
+
+    private boolean isBetter(double score, long seed, int slot) {
+        int compare = Double.compare(score, scores[slot]);
+        return compare < 0 || (compare == 0 && seed < seeds[slot]);
+    }
+
+    // cell of seed in index, or the empty cell it would go to
+    private int find(long seed) {
+        int cell = hash(seed);
+        while (index[cell] != 0 && seeds[index[cell] - 1] != seed) {
+            cell = (cell + 1) & indexMask;
+        }
+        return cell;
+    }
+
+    // empties the seed's cell and moves later entries of its probe run back, so no lookup stops early
+    private void remove(long seed) {
+        int empty = find(seed);
+        index[empty] = 0;
+        for (int cell = (empty + 1) & indexMask; index[cell] != 0; cell = (cell + 1) & indexMask) {
+            int home = hash(seeds[index[cell] - 1]);
+            // the entry may move back unless its home lies cyclically in (empty, cell]
+            boolean between = empty <= cell ? home > empty && home <= cell : home > empty || home <= cell;
+            if (!between) {
+                index[empty] = index[cell];
+                index[cell] = 0;
+                empty = cell;
+            }
+        }
+    }
+
+    private int hash(long seed) {
+        return (int) ((seed * 0x9E3779B97F4A7C15L) >>> 32) & indexMask;
+    }
+
+    // worse entries move up
+    private void siftUp(int k) {
+        int slot = heap[k];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!isBetter(scores[heap[parent]], seeds[heap[parent]], slot)) {
+                break;
+            }
+            heap[k] = heap[parent];
+            k = parent;
+        }
+        heap[k] = slot;
+    }
+
+    private void siftDown(int k) {
+        int slot = heap[k];
+        int half = size >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int right = child + 1;
+            if (right < size && isBetter(scores[heap[child]], seeds[heap[child]], heap[right])) {
+                child = right;
+            }
+            if (!isBetter(scores[slot], seeds[slot], heap[child])) {
+                break;
+            }
+            heap[k] = heap[child];
+            k = child;
+        }
+        heap[k] = slot;
+    }
+}
@@ -0,0 +1,92 @@
+package com.mvc.engine;
+
+import com.mvc.Config;
+import com.mvc.FilterProfile;
+import com.mvc.filters.FilterPlan;
+import com.mvc.filters.SeedContext;
+import com.mvc.store.StructureSeedStore;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Second tier of TIERED precision. Workers hand first pass survivors over and keep filtering;
+the exact checks run here on their own threads, each with its own context and plans. The
+queue is bounded and a full queue runs the verification on the submitting worker, so a flood
+of survivors slows the first pass down instead of piling up.
+*/
+public class Verifier {
+    private final FilterProfile[] profiles;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Tier> tiers;
+
+    public Verifier(FilterProfile[] profiles, int threads) {
+        this.profiles = profiles;
+        this.tiers = ThreadLocal.withInitial(Tier::new);
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * 16), runnable -> {
+            Thread thread = new Thread(runnable, "seed-verifier-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // whether any profile runs a second tier at all
+    public static boolean isNeeded(FilterProfile[] profiles) {
+        for (FilterProfile profile : profiles) {
+            if (profile.getPrecision().equals(Config.PRECISION_TYPE.TIERED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a confirmed survivor, null when the exact checks reject it
+    public Future<Survivor> submit(int profile, long seed) {
+        return executor.submit(() -> tiers.get().verify(profile, seed));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private class Tier {
+        private final SeedContext context = new SeedContext();
+        private final FilterPlan[] plans = new FilterPlan[profiles.length];
+
+        private Tier() {
+            for (int p = 0; p < profiles.length; p++) {
+                plans[p] = FilterPlan.compile(context, profiles[p]);
+            }
+        }
+
+        private Survivor verify(int profile, long seed) {
+            long[] positions = new long[StructureSeedStore.POSITION_COUNT];
+            context.reset(seed);
+            return plans[profile].verify(positions) ? new Survivor(positions, plans[profile].getPathCost()) : null;
+        }
+    }
+
+    // what the worker's own plan would have left behind for a match, see FilterPlan
+    public static class Survivor {
+        private final long[] positions;
+        private final double pathCost;
+
+        private Survivor(long[] positions, double pathCost) {
+            this.positions = positions;
+            this.pathCost = pathCost;
+        }
+
+        public long[] getPositions() {
+            return positions;
+        }
+
+        public double getPathCost() {
+            return pathCost;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.mvc.engine;
+
+import com.mvc.Config;
+import com.mvc.FilterProfile;
+import com.mvc.filters.SeedContext;
+import com.mvc.filters.biome.OverworldBiomeFilter;
+import com.mvc.filters.terrain.NetherTerrainStrategy;
+import com.mvc.filters.terrain.PathTerrainStrategy;
+import com.mvc.util.PackedPos;
+import com.mvc.util.SeedPermutation;
+import com.seedfinding.mccore.state.Dimension;
+import com.seedfinding.mcfeature.structure.generator.structure.EndCityGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Runs a fixed training corpus through every stage before the workers take real seeds, so class
+loading, the first biome sources and terrain generators, and JIT compilation of the filter paths
+happen here instead of in the first batches of a short job.
+
+Almost every seed fails the structure stage early, so the later stages are driven directly:
+the profiles' terrain strategies towards a bastion at a fixed offset, the biome stage without
+its structure precondition, and end city generation at the seed's first city.
+
+main() runs the same pass on its own, `./gradlew cdsArchive` records the classes it loads into
+a class data sharing archive for -XX:SharedArchiveFile.
+
+There are no startup tables to persist: region positions and the gateway order are derived
+from each seed, nothing is precomputed from the configuration alone.
+*/
+public class WarmUp {
+    private static final long CORPUS_KEY = 0x3A7B1E5L;
+    // stages after the structure stage cost far more per seed, they see every STRIDE-th seed
+    private static final int STRIDE = 16;
+    // main() has to load every class for the archive, also while the search skips the warm-up
+    private static final long ARCHIVE_MILLIS = 10_000;
+
+    private final FilterProfile[] profiles;
+    private final SeedPermutation corpus = new SeedPermutation(CORPUS_KEY);
+    private final AtomicLong checked = new AtomicLong();
+
+    public WarmUp(FilterProfile[] profiles) {
+        this.profiles = profiles;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        FilterProfile[] profiles = FilterProfile.loadAll(args);
+        long start = System.nanoTime();
+        long seeds = new WarmUp(profiles).run(Config.THREADS, Config.WARM_UP_SEEDS,
+                Config.WARM_UP_MILLIS > 0 ? Config.WARM_UP_MILLIS : ARCHIVE_MILLIS);
+        System.out.printf("Warmed up on %,d seeds in %d ms%n", seeds, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // returns once the corpus is through or the time is up, the number of corpus seeds run
+    public long run(int threads, int seeds, long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        Thread[] workers = new Thread[Math.max(1, Math.min(threads, seeds / STRIDE))];
+        for (int t = 0; t < workers.length; t++) {
+            int offset = t;
+            workers[t] = new Thread(() -> train(offset, workers.length, seeds, deadline), "warm-up-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return checked.get();
+    }
+
+    private void train(int offset, int stride, int seeds, long deadline) {
+        SeedWorker worker = new SeedWorker(profiles);
+        SeedContext context = new SeedContext();
+        OverworldBiomeFilter biomeFilter = new OverworldBiomeFilter(context);
+        ArrayList<NetherTerrainStrategy> strategies = new ArrayList<>();
+        ArrayList<Integer> offsets = new ArrayList<>();
+        boolean overworld = false;
+        boolean end = false;
+        for (FilterProfile profile : profiles) {
+            Dimension dimension = profile.getDimension();
+            overworld |= dimension.equals(Dimension.OVERWORLD);
+            end |= dimension.equals(Dimension.END);
+            if (dimension.equals(Dimension.NETHER)) {
+                int distance = profile.getBastionDistance();
+                strategies.add(NetherTerrainStrategy.create(profile.getTerrain(), distance));
+                offsets.add(Math.max(1, distance / 2));
+                if (profile.getPrecision().equals(Config.PRECISION_TYPE.TIERED)) {
+                    strategies.add(PathTerrainStrategy.approximate(distance));
+                    strategies.add(PathTerrainStrategy.exact(distance));
+                    offsets.add(Math.max(1, distance / 2));
+                    offsets.add(Math.max(1, distance / 2));
+                }
+            }
+        }
+
+        long count = 0;
+        for (long index = offset; index < seeds && System.nanoTime() < deadline; index += stride) {
+            long seed = corpus.seedAt(index);
+            worker.reset(seed);
+            for (int p = 0; p < profiles.length; p++) {
+                worker.filterStructures(p);
+            }
+            if (count++ % STRIDE != 0) {
+                continue;
+            }
+
+            context.reset(seed);
+            for (int s = 0; s < strategies.size(); s++) {
+                strategies.get(s).canReachBastion(context.getNetherTerrainSampler(), offsets.get(s), -offsets.get(s));
+            }
+            if (overworld) {
+                biomeFilter.reset(((index & 0xFFFF) << 48) | seed, PackedPos.NONE, PackedPos.NONE);
+                biomeFilter.countMidgameTemples();
+                biomeFilter.filterBiomes();
+            }
+            long cityPos = end ? context.getEndCity(0, 0) : PackedPos.NONE;
+            if (cityPos != PackedPos.NONE) { // region 0, 0 of the seed may have no city
+                new EndCityGenerator(Config.VERSION).generate(context.getEndTerrainGenerator(), PackedPos.toCPos(cityPos), context.getChunkRand());
+            }
+        }
+        checked.addAndGet(count);
+    }
+}
@@ -0,0 +1,139 @@
+package com.mvc.engine;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/*
+Runtime footprint of a search. Every worker thread is started up front, but only the first
+getActiveWorkers() take batches; the rest park at a batch boundary, after handing their last
+batch back, so parking never strands seeds or skews the checkpoint watermark.
+
+The control file is a .properties file re-read whenever it changes:
+
+threads=4          workers taking batches, at most the number started
+cpu_budget=2.5     cores the search may use in total, 0 for no limit
+auto_scale=true    park workers while the system load leaves no idle core
+
+The CPU budget is enforced per worker: after each batch a worker sleeps long enough that its
+share of the budget is its duty cycle.
+*/
+public class WorkerControl {
+    // load average samples between auto scale steps, the load average itself moves slowly
+    private static final long AUTO_SCALE_INTERVAL = 30_000;
+
+    private final int maxWorkers;
+    private final File controlFile;
+    private final PrintStream status;
+    private int requestedWorkers;
+    private volatile int activeWorkers;
+    private volatile double cpuBudget;
+    private boolean autoScale;
+    private long lastModified = 0;
+    private long nextAutoScaleTime = 0;
+
+    public WorkerControl(int maxWorkers, int workers, double cpuBudget, boolean autoScale, File controlFile, PrintStream status) {
+        this.maxWorkers = maxWorkers;
+        this.requestedWorkers = Math.max(1, Math.min(workers, maxWorkers));
+        this.activeWorkers = requestedWorkers;
+        this.cpuBudget = cpuBudget;
+        this.autoScale = autoScale;
+        this.controlFile = controlFile;
+        this.status = status;
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers;
+    }
+
+    // blocks a worker while it is parked, returns straight away once the input is drained or stopped or every profile is done
+    public synchronized void awaitTurn(int worker, BatchQueue queue, MatchSink sink) throws InterruptedException {
+        while (worker >= activeWorkers && !queue.isExhausted() && !queue.isStopped() && !sink.isDone()) {
+            wait(1000);
+        }
+    }
+
+    // sleeps off the part of a batch's CPU time that is over this worker's share of the budget
+    public void throttle(long cpuNanos) throws InterruptedException {
+        double share = cpuBudget / activeWorkers;
+        if (cpuBudget <= 0 || share >= 1) {
+            return;
+        }
+
+        long sleepNanos = (long) (cpuNanos * (1 - share) / share);
+        Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+    }
+
+    // called from the monitor loop, applies control file changes and auto scaling
+    public void update() throws IOException {
+        long currentTime = System.currentTimeMillis();
+        if (controlFile != null && controlFile.isFile() && controlFile.lastModified() != lastModified) {
+            lastModified = controlFile.lastModified();
+            load();
+        }
+
+        if (autoScale && currentTime > nextAutoScaleTime) {
+            nextAutoScaleTime = currentTime + AUTO_SCALE_INTERVAL;
+            autoScale();
+        }
+    }
+
+    private void load() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(controlFile)) {
+            properties.load(reader);
+        }
+
+        int workers;
+        double budget;
+        try {
+            workers = Integer.parseInt(properties.getProperty("threads", Integer.toString(requestedWorkers)).trim());
+            budget = Double.parseDouble(properties.getProperty("cpu_budget", Double.toString(cpuBudget)).trim());
+        } catch (NumberFormatException e) {
+            // a typo must not stop the monitor loop, the next save of the file is read again
+            status.printf("%nControl file: %s, keeping %d workers and cpu budget %s%n", e.getMessage(), requestedWorkers,
+                    cpuBudget > 0 ? cpuBudget + " cores" : "unlimited");
+            return;
+        }
+        boolean scale = Boolean.parseBoolean(properties.getProperty("auto_scale", Boolean.toString(autoScale)).trim());
+
+        synchronized (this) {
+            requestedWorkers = Math.max(1, Math.min(workers, maxWorkers));
+            cpuBudget = budget;
+            autoScale = scale;
+            setActiveWorkers(requestedWorkers);
+        }
+        status.printf("%nControl file: %d of %d workers, cpu budget %s, auto scale %s%n", requestedWorkers, maxWorkers,
+                budget > 0 ? budget + " cores" : "unlimited", scale ? "on" : "off");
+    }
+
+    /*
+    The load average counts our own active workers too. A load above the core count means
+    something else wants CPU, so one worker parks; once a core sits idle again, one comes back,
+    never above what was requested.
+    */
+    private synchronized void autoScale() {
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (load < 0) {
+            return; // not available on this platform
+        }
+
+        if (load > cores + 0.5 && activeWorkers > 1) {
+            setActiveWorkers(activeWorkers - 1);
+            status.printf("%nLoad %.1f on %d cores, scaled down to %d workers%n", load, cores, activeWorkers);
+        } else if (load < cores - 1 && activeWorkers < requestedWorkers) {
+            setActiveWorkers(activeWorkers + 1);
+            status.printf("%nLoad %.1f on %d cores, scaled up to %d workers%n", load, cores, activeWorkers);
+        }
+    }
+
+    private synchronized void setActiveWorkers(int workers) {
+        activeWorkers = workers;
+        notifyAll();
+    }
+}
@@ -0,0 +1,242 @@
+package com.mvc.filters;
+
+import com.mvc.Config;
+import com.mvc.FilterProfile;
+import com.mvc.filters.structure.EndStructureFilter;
+import com.mvc.filters.structure.NetherStructureFilter;
+import com.mvc.filters.structure.OverworldStructureFilter;
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.state.Dimension;
+
+/*
+A FilterProfile compiled once at startup. compile() picks the dimension's plan and builds its
+filter with the profile's thresholds fixed in final fields, so the per seed path holds no
+dimension checks and no profile or Config lookups: every plan calls exactly one concrete
+filter, and a run searching one dimension only ever sees one plan class, which the JIT inlines.
+*/
+public abstract class FilterPlan {
+    private final FilterProfile profile;
+    private final boolean needsBiomes;
+    private final int midgameTemples;
+
+    private FilterPlan(FilterProfile profile, boolean needsBiomes) {
+        this.profile = profile;
+        this.needsBiomes = needsBiomes;
+        this.midgameTemples = profile.getMidgameTemples();
+    }
+
+    public static FilterPlan compile(SeedContext context, FilterProfile profile) {
+        Dimension dimension = profile.getDimension();
+        if (dimension.equals(Dimension.OVERWORLD)) {
+            return new OverworldPlan(context, profile);
+        } else if (dimension.equals(Dimension.NETHER)) {
+            return profile.getPrecision().equals(Config.PRECISION_TYPE.TIERED) ? new TieredNetherPlan(context, profile) : new NetherPlan(context, profile);
+        } else if (dimension.equals(Dimension.END)) {
+            return new EndPlan(context, profile);
+        }
+        throw new IllegalArgumentException("No filter plan for " + dimension);
+    }
+
+    // structure stage on the context's current seed, fills positions with the packed chunk positions the later stages need
+    public abstract boolean filterStructures(long[] positions);
+
+    // the structure stage as the checks it runs in order, the estimator times and counts them one by one
+    public abstract String[] getStages();
+
+    // one check of getStages(), call them in order and stop at the first that fails; the last one fills positions like filterStructures
+    public abstract boolean filterStage(int stage, long[] positions);
+
+    // whether structure matches are first pass survivors that verify() has to confirm
+    public boolean needsVerification() {
+        return false;
+    }
+
+    // exact second tier on the context's current seed, fills positions like filterStructures
+    public boolean verify(long[] positions) {
+        return filterStructures(positions);
+    }
+
+    // route cost to the bastion of the last structure match, nether plans only
+    public double getPathCost() {
+        return 0;
+    }
+
+    // whether a structure match still has to go through the overworld biome fan-out
+    public final boolean needsBiomes() {
+        return needsBiomes;
+    }
+
+    // biome stage threshold, only meaningful when needsBiomes
+    public final int getMidgameTemples() {
+        return midgameTemples;
+    }
+
+    public final FilterProfile getProfile() {
+        return profile;
+    }
+
+    private static final class OverworldPlan extends FilterPlan {
+        private final OverworldStructureFilter filter;
+
+        private OverworldPlan(SeedContext context, FilterProfile profile) {
+            super(profile, true);
+            this.filter = new OverworldStructureFilter(context, profile);
+        }
+
+        @Override
+        public boolean filterStructures(long[] positions) {
+            if (!filter.filterStructures()) {
+                return false;
+            }
+            positions[0] = filter.getVillagePos();
+            positions[1] = filter.getTemplePos();
+            return true;
+        }
+
+        @Override
+        public String[] getStages() {
+            return OverworldStructureFilter.STAGES;
+        }
+
+        @Override
+        public boolean filterStage(int stage, long[] positions) {
+            if (!filter.filterStage(stage)) {
+                return false;
+            }
+            positions[0] = filter.getVillagePos();
+            positions[1] = filter.getTemplePos();
+            return true;
+        }
+    }
+
+    private static final class NetherPlan extends FilterPlan {
+        private final NetherStructureFilter filter;
+
+        private NetherPlan(SeedContext context, FilterProfile profile) {
+            super(profile, false);
+            this.filter = new NetherStructureFilter(context, profile);
+        }
+
+        @Override
+        public boolean filterStructures(long[] positions) {
+            if (!filter.filterStructures()) {
+                return false;
+            }
+            positions[0] = filter.getBastionPos();
+            positions[1] = filter.getFortressPos();
+            return true;
+        }
+
+        @Override
+        public String[] getStages() {
+            return NetherStructureFilter.STAGES;
+        }
+
+        @Override
+        public boolean filterStage(int stage, long[] positions) {
+            if (!filter.filterStage(stage)) {
+                return false;
+            }
+            positions[0] = filter.getBastionPos();
+            positions[1] = filter.getFortressPos();
+            return true;
+        }
+
+        @Override
+        public double getPathCost() {
+            return filter.getRouteCost();
+        }
+    }
+
+    private static final class TieredNetherPlan extends FilterPlan {
+        private final NetherStructureFilter filter;
+
+        private TieredNetherPlan(SeedContext context, FilterProfile profile) {
+            super(profile, false);
+            this.filter = new NetherStructureFilter(context, profile);
+        }
+
+        // first tier positions, verify() fills them again for the survivors it confirms
+        @Override
+        public boolean filterStructures(long[] positions) {
+            if (!filter.filterApproximate()) {
+                return false;
+            }
+            positions[0] = filter.getBastionPos();
+            positions[1] = filter.getFortressPos();
+            return true;
+        }
+
+        @Override
+        public String[] getStages() {
+            return NetherStructureFilter.TIERED_STAGES;
+        }
+
+        // the last stage is the exact second tier, which a search runs on the verifier
+        @Override
+        public boolean filterStage(int stage, long[] positions) {
+            if (!filter.filterTieredStage(stage)) {
+                return false;
+            }
+            positions[0] = filter.getBastionPos();
+            positions[1] = filter.getFortressPos();
+            return true;
+        }
+
+        @Override
+        public boolean needsVerification() {
+            return true;
+        }
+
+        @Override
+        public boolean verify(long[] positions) {
+            if (!filter.verify()) {
+                return false;
+            }
+            positions[0] = filter.getBastionPos();
+            positions[1] = filter.getFortressPos();
+            return true;
+        }
+
+        @Override
+        public double getPathCost() {
+            return filter.getRouteCost();
+        }
+    }
+
+    private static final class EndPlan extends FilterPlan {
+        private final EndStructureFilter filter;
+
+        private EndPlan(SeedContext context, FilterProfile profile) {
+            super(profile, false);
+            this.filter = new EndStructureFilter(context, profile);
+        }
+
+        @Override
+        public boolean filterStructures(long[] positions) {
+            if (!filter.filterStructures()) {
+                return false;
+            }
+            long gatewayPos = filter.getGatewayPos();
+            positions[0] = filter.getCityPos();
+            positions[1] = PackedPos.pack(PackedPos.x(gatewayPos) >> 4, PackedPos.z(gatewayPos) >> 4);
+            return true;
+        }
+
+        @Override
+        public String[] getStages() {
+            return EndStructureFilter.STAGES;
+        }
+
+        @Override
+        public boolean filterStage(int stage, long[] positions) {
+            if (!filter.filterStage(stage)) {
+                return false;
+            }
+            long gatewayPos = filter.getGatewayPos();
+            positions[0] = filter.getCityPos();
+            positions[1] = PackedPos.pack(PackedPos.x(gatewayPos) >> 4, PackedPos.z(gatewayPos) >> 4);
+            return true;
+        }
+    }
+}
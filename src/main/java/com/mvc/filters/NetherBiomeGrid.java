@@ -0,0 +1,78 @@
+package com.mvc.filters;
+
+import java.util.Arrays;
+
+/*
+Nether biome ids of one seed for the path cost, kept as bytes in a square grid of chunks around
+the bastion the path search heads for. Each entry is the 1:4 noise cell at the chunk's corner,
+the only cell the path cost samples, so a cell the A* search reaches from several neighbours, or
+that several profiles route through, goes through the biome noise once. The soul sand valley
+check reads the zoomed block biome instead and does not use the grid.
+
+Entries are filled the first time they are read: the search only reaches a small part of its
+box, filling all of it up front would cost more noise than it saves. Chunks outside the grid
+are looked up directly.
+*/
+public class NetherBiomeGrid {
+    private static final byte UNKNOWN = -1; // 255 is not a biome id
+
+    private final SeedContext context;
+    private int radius = -1;
+    private int width;
+    private int centerX;
+    private int centerZ;
+    private byte[] ids = new byte[0];
+    private boolean filled;
+
+    public NetherBiomeGrid(SeedContext context) {
+        this.context = context;
+    }
+
+    // called by the filters of the context when they are built, the grid covers the largest search box any of them walks
+    public void ensureRadius(int chunks) {
+        if (chunks <= radius) {
+            return;
+        }
+        radius = chunks;
+        width = radius * 2 + 1;
+        ids = new byte[width * width];
+        Arrays.fill(ids, UNKNOWN);
+        filled = false;
+    }
+
+    // seeds that fail before the biome checks never touch the grid, clearing it is free for them
+    public void clear() {
+        if (filled) {
+            Arrays.fill(ids, UNKNOWN);
+            filled = false;
+        }
+    }
+
+    // the chunk a path search heads for, moving the grid forgets every entry
+    public void center(int chunkX, int chunkZ) {
+        if (chunkX != centerX || chunkZ != centerZ) {
+            clear();
+            centerX = chunkX;
+            centerZ = chunkZ;
+        }
+    }
+
+    public int getBiomeId(int chunkX, int chunkZ) {
+        int gridX = chunkX - centerX + radius;
+        int gridZ = chunkZ - centerZ + radius;
+        if (gridX < 0 || gridX >= width || gridZ < 0 || gridZ >= width) {
+            return lookup(chunkX, chunkZ);
+        }
+
+        int index = gridX * width + gridZ;
+        if (ids[index] == UNKNOWN) {
+            ids[index] = (byte) lookup(chunkX, chunkZ);
+            filled = true;
+        }
+        return ids[index] & 0xFF;
+    }
+
+    private int lookup(int chunkX, int chunkZ) {
+        return context.getNetherBiomeSource().getBiomeForNoiseGen(chunkX * 4, 0, chunkZ * 4).getId();
+    }
+}
@@ -0,0 +1,212 @@
+package com.mvc.filters;
+
+import com.mvc.Config;
+import com.mvc.filters.terrain.NetherTerrainSampler;
+import com.mvc.util.PackedPos;
+import com.seedfinding.mcbiome.source.EndBiomeSource;
+import com.seedfinding.mcbiome.source.NetherBiomeSource;
+import com.seedfinding.mccore.rand.ChunkRand;
+import com.seedfinding.mccore.util.pos.CPos;
+import com.seedfinding.mcfeature.structure.*;
+import com.seedfinding.mcterrain.terrain.EndTerrainGenerator;
+import com.seedfinding.mcterrain.terrain.NetherTerrainGenerator;
+
+import java.util.Arrays;
+
+/*
+Everything the filters compute that only depends on the structure seed. Structure positions
+per region, biome sources and terrain generators are created on first use and shared by every
+filter profile checked against the same seed, so extra profiles only pay for their own thresholds.
+
+A context is reused for every seed a thread checks, positions are kept packed (see PackedPos)
+so resetting it for the next seed allocates nothing.
+*/
+public class SeedContext {
+    public static final int UNKNOWN = 0;
+    public static final int VALID = 1;
+    public static final int INVALID = 2;
+
+    private final ChunkRand chunkRand = new ChunkRand();
+    private final Village village = new Village(Config.VERSION);
+    private final DesertPyramid temple = new DesertPyramid(Config.VERSION);
+    private final Monument monument = new Monument(Config.VERSION);
+    private final PillagerOutpost outpost = new PillagerOutpost(Config.VERSION);
+    private final BastionRemnant bastion = new BastionRemnant(Config.VERSION);
+    private final Fortress fortress = new Fortress(Config.VERSION);
+    private final EndCity endCity = new EndCity(Config.VERSION);
+    private final RegionCache villages = new RegionCache(village);
+    private final RegionCache temples = new RegionCache(temple);
+    private final RegionCache monuments = new RegionCache(monument);
+    private final RegionCache outposts = new RegionCache(outpost);
+    private final RegionCache bastions = new RegionCache(bastion);
+    private final RegionCache fortresses = new RegionCache(fortress);
+    private final RegionCache endCities = new RegionCache(endCity);
+    private final NetherTerrainSampler netherTerrainSampler = new NetherTerrainSampler(this);
+    private final NetherBiomeGrid netherBiomeGrid = new NetherBiomeGrid(this);
+    private long structureSeed;
+    private NetherBiomeSource netherBiomeSource;
+    private NetherTerrainGenerator netherTerrainGenerator;
+    private EndTerrainGenerator endTerrainGenerator;
+    private int portalSpace;
+    private int endCityState;
+
+    public void reset(long structureSeed) {
+        this.structureSeed = structureSeed;
+        chunkRand.setSeed(structureSeed);
+        villages.clear();
+        temples.clear();
+        monuments.clear();
+        outposts.clear();
+        bastions.clear();
+        fortresses.clear();
+        endCities.clear();
+        netherBiomeSource = null;
+        netherBiomeGrid.clear();
+        netherTerrainGenerator = null;
+        netherTerrainSampler.clear();
+        endTerrainGenerator = null;
+        portalSpace = UNKNOWN;
+        endCityState = UNKNOWN;
+    }
+
+    public long getStructureSeed() {
+        return structureSeed;
+    }
+
+    public ChunkRand getChunkRand() {
+        return chunkRand;
+    }
+
+    // region lookups return packed chunk positions, PackedPos.NONE when the region has no structure
+    public long getVillage(int regionX, int regionZ) {
+        return villages.get(regionX, regionZ);
+    }
+
+    public long getTemple(int regionX, int regionZ) {
+        return temples.get(regionX, regionZ);
+    }
+
+    public long getMonument(int regionX, int regionZ) {
+        return monuments.get(regionX, regionZ);
+    }
+
+    public long getOutpost(int regionX, int regionZ) {
+        return outposts.get(regionX, regionZ);
+    }
+
+    public long getBastion(int regionX, int regionZ) {
+        return bastions.get(regionX, regionZ);
+    }
+
+    public long getFortress(int regionX, int regionZ) {
+        return fortresses.get(regionX, regionZ);
+    }
+
+    public long getEndCity(int regionX, int regionZ) {
+        return endCities.get(regionX, regionZ);
+    }
+
+    public Village getVillageStructure() {
+        return village;
+    }
+
+    public DesertPyramid getTempleStructure() {
+        return temple;
+    }
+
+    public Monument getMonumentStructure() {
+        return monument;
+    }
+
+    public PillagerOutpost getOutpostStructure() {
+        return outpost;
+    }
+
+    public BastionRemnant getBastionStructure() {
+        return bastion;
+    }
+
+    public NetherBiomeSource getNetherBiomeSource() {
+        if (netherBiomeSource == null) {
+            netherBiomeSource = new NetherBiomeSource(Config.VERSION, structureSeed);
+        }
+        return netherBiomeSource;
+    }
+
+    // noise biome ids the path cost reads, each looked up once per seed
+    public NetherBiomeGrid getNetherBiomeGrid() {
+        return netherBiomeGrid;
+    }
+
+    public NetherTerrainGenerator getNetherTerrainGenerator() {
+        if (netherTerrainGenerator == null) {
+            netherTerrainGenerator = new NetherTerrainGenerator(getNetherBiomeSource());
+        }
+        return netherTerrainGenerator;
+    }
+
+    // cached terrain columns of the nether generator, shared by every profile's terrain strategy
+    public NetherTerrainSampler getNetherTerrainSampler() {
+        return netherTerrainSampler;
+    }
+
+    public EndTerrainGenerator getEndTerrainGenerator() {
+        if (endTerrainGenerator == null) {
+            endTerrainGenerator = new EndTerrainGenerator(new EndBiomeSource(Config.VERSION, structureSeed));
+        }
+        return endTerrainGenerator;
+    }
+
+    // profile independent checks remember their outcome as UNKNOWN, VALID or INVALID
+    public int getPortalSpace() {
+        return portalSpace;
+    }
+
+    public void setPortalSpace(int portalSpace) {
+        this.portalSpace = portalSpace;
+    }
+
+    public int getEndCityState() {
+        return endCityState;
+    }
+
+    public void setEndCityState(int endCityState) {
+        this.endCityState = endCityState;
+    }
+
+    private class RegionCache {
+        private static final int RADIUS = 4;
+        private static final int SIZE = RADIUS * 2 + 1;
+
+        private final RegionStructure<?, ?> structure;
+        private final long[] positions = new long[SIZE * SIZE];
+        private final boolean[] computed = new boolean[SIZE * SIZE];
+
+        private RegionCache(RegionStructure<?, ?> structure) {
+            this.structure = structure;
+        }
+
+        private void clear() {
+            Arrays.fill(computed, false);
+        }
+
+        private long get(int regionX, int regionZ) {
+            if (Math.abs(regionX) > RADIUS || Math.abs(regionZ) > RADIUS) {
+                return locate(regionX, regionZ);
+            }
+
+            int index = (regionX + RADIUS) * SIZE + regionZ + RADIUS;
+            if (!computed[index]) {
+                positions[index] = locate(regionX, regionZ);
+                computed[index] = true;
+            }
+            return positions[index];
+        }
+
+        // the CPos does not outlive this call, so the JIT can scalar replace it once getInRegion is inlined
+        private long locate(int regionX, int regionZ) {
+            CPos pos = structure.getInRegion(structureSeed, regionX, regionZ, chunkRand);
+            return PackedPos.pack(pos);
+        }
+    }
+}
@@ -1,40 +1,53 @@
 package com.mvc.filters.biome;
 
 import com.mvc.Config;
+import com.mvc.filters.SeedContext;
+import com.mvc.util.PackedPos;
 
 import com.seedfinding.mcbiome.layer.BiomeLayer;
 import com.seedfinding.mcbiome.layer.IntBiomeLayer;
 import com.seedfinding.mcbiome.source.OverworldBiomeSource;
-import com.seedfinding.mccore.rand.ChunkRand;
-import com.seedfinding.mccore.util.data.Pair;
 import com.seedfinding.mccore.util.pos.BPos;
-import com.seedfinding.mccore.util.pos.CPos;
-import com.seedfinding.mcfeature.structure.DesertPyramid;
-import com.seedfinding.mcfeature.structure.Monument;
-import com.seedfinding.mcfeature.structure.PillagerOutpost;
-import com.seedfinding.mcfeature.structure.Village;
 
 import java.util.ArrayList;
 
 public class OverworldBiomeFilter {
-    private final long structureSeed;
-    private final ChunkRand chunkRand;
-    private final long worldSeed;
-    private final OverworldBiomeSource overworldBiomeSource;
-    private final IntBiomeLayer biomeLayer9;
-    private final IntBiomeLayer biomeLayer11;
-    private final IntBiomeLayer biomeLayer16;
-    private final IntBiomeLayer biomeLayer19;
-    private final IntBiomeLayer biomeLayer26;
-    private final IntBiomeLayer biomeLayer31;
-    private final ArrayList<CPos> mushroomPositions;
-    private final ArrayList<CPos> badlandsPositions;
-    private final ArrayList<CPos> junglePositions;
-    private final ArrayList<CPos> megaTaigaPositions;
-    private final ArrayList<CPos> snowyPositions;
-    public OverworldBiomeFilter(long worldSeed, long structureSeed, ChunkRand chunkRand) {
-        this.structureSeed = structureSeed;
-        this.chunkRand = chunkRand;
+    public static final int COORDINATE_COUNT = 5;
+
+    private final SeedContext context;
+    private long worldSeed;
+    private OverworldBiomeSource overworldBiomeSource;
+    private IntBiomeLayer biomeLayer9;
+    private IntBiomeLayer biomeLayer11;
+    private IntBiomeLayer biomeLayer16;
+    private IntBiomeLayer biomeLayer19;
+    private IntBiomeLayer biomeLayer26;
+    private IntBiomeLayer biomeLayer31;
+    // packed tile positions, reused for every world seed
+    private final long[] specialPositions = new long[36];
+    private final long[] mushroomPositions = new long[576];
+    private final long[] badlandsPositions = new long[36];
+    private final long[] junglePositions = new long[36];
+    private final long[] megaTaigaPositions = new long[36];
+    private final long[] snowyPositions = new long[36];
+    private int specialCount;
+    private int mushroomCount;
+    private int badlandsCount;
+    private int jungleCount;
+    private int megaTaigaCount;
+    private int snowyCount;
+    // packed block positions of mushroom, jungle, mega taiga, snowy and badlands once filterBiomes passed
+    private final long[] coordinates = new long[COORDINATE_COUNT];
+    private long villagePos;
+    private long templePos;
+
+    // one filter per thread, reset for every world seed of the context's structure seed
+    public OverworldBiomeFilter(SeedContext context) {
+        this.context = context;
+    }
+
+    // village and temple positions only depend on the structure seed, pass PackedPos.NONE to look them up
+    public void reset(long worldSeed, long villagePos, long templePos) {
         this.worldSeed = worldSeed;
         this.overworldBiomeSource = new OverworldBiomeSource(Config.VERSION, worldSeed);
         this.biomeLayer9 = overworldBiomeSource.getLayer(9);
@@ -43,76 +56,70 @@ public class OverworldBiomeFilter {
         this.biomeLayer19 = overworldBiomeSource.getLayer(19);
         this.biomeLayer26 = overworldBiomeSource.getLayer(26);
         this.biomeLayer31 = overworldBiomeSource.getLayer(31);
-        this.mushroomPositions = new ArrayList<>();
-        this.badlandsPositions = new ArrayList<>();
-        this.junglePositions = new ArrayList<>();
-        this.megaTaigaPositions = new ArrayList<>();
-        this.snowyPositions = new ArrayList<>();
+        this.specialCount = 0;
+        this.mushroomCount = 0;
+        this.badlandsCount = 0;
+        this.jungleCount = 0;
+        this.megaTaigaCount = 0;
+        this.snowyCount = 0;
+        this.villagePos = villagePos != PackedPos.NONE ? villagePos : context.getVillage(0, 0);
+        this.templePos = templePos != PackedPos.NONE ? templePos : context.getTemple(0, 0);
     }
 
-    public Pair<Boolean, ArrayList<BPos>> filterOverworld() {
-        if (!hasMidgame()) {
-            return new Pair<>(false, null);
+    // temples in the midgame regions, -1 when the spawn structures are missing; profiles only differ in the threshold
+    public int countMidgameTemples() {
+        if (!(hasTemple() && hasVillage() && hasMonument() && hasOutpost())) {
+            return -1;
         }
-        Pair<Boolean, ArrayList<BPos>> biomes = filterBiomes();
-        return new Pair<>(biomes.getFirst(), biomes.getSecond());
-    }
-
-    private boolean hasMidgame() {
-        return hasTemple() && hasVillage() && hasMonument() && hasOutpost() && hasMidgameTemples(5);
+        return midgameTemples();
     }
 
-    private Pair<Boolean, ArrayList<BPos>> filterBiomes() {
+    public boolean filterBiomes() {
         if (!hasBiomeTiles()) {
-            return new Pair<>(false, null);
-        }
-        Pair<Boolean, BPos> mushroomBiomes = hasMushroomBiomes();
-        if (!mushroomBiomes.getFirst()) {
-            return new Pair<>(false, null);
+            return false;
         }
-        Pair<Boolean, BPos> jungleBiomes = hasJungleBiomes();
-        if (!jungleBiomes.getFirst()) {
-            return new Pair<>(false, null);
+        coordinates[0] = hasMushroomBiomes();
+        if (coordinates[0] == PackedPos.NONE) {
+            return false;
         }
-        Pair<Boolean, BPos> megaTaigaBiomes = hasMegaTaigaBiomes();
-        if (!megaTaigaBiomes.getFirst()) {
-            return new Pair<>(false, null);
+        coordinates[1] = hasJungleBiomes();
+        if (coordinates[1] == PackedPos.NONE) {
+            return false;
         }
-        Pair<Boolean, BPos> snowyBiomes = hasSnowyBiomes();
-        if (!snowyBiomes.getFirst()) {
-            return new Pair<>(false, null);
+        coordinates[2] = hasMegaTaigaBiomes();
+        if (coordinates[2] == PackedPos.NONE) {
+            return false;
         }
-        Pair<Boolean, BPos> badlandsBiomes = hasBadlandsBiomes();
-        if (!badlandsBiomes.getFirst()) {
-            return new Pair<>(false, null);
+        coordinates[3] = hasSnowyBiomes();
+        if (coordinates[3] == PackedPos.NONE) {
+            return false;
         }
+        coordinates[4] = hasBadlandsBiomes();
+        return coordinates[4] != PackedPos.NONE;
+    }
 
-        ArrayList<BPos> coordinates = new ArrayList<>();
-        coordinates.add(mushroomBiomes.getSecond());
-        coordinates.add(jungleBiomes.getSecond());
-        coordinates.add(megaTaigaBiomes.getSecond());
-        coordinates.add(snowyBiomes.getSecond());
-        coordinates.add(badlandsBiomes.getSecond());
+    public long getCoordinate(int index) {
+        return coordinates[index];
+    }
 
-        return new Pair<>(true, coordinates);
+    // only built for matches, the list prints the same way the output always has
+    public ArrayList<BPos> getCoordinates() {
+        ArrayList<BPos> list = new ArrayList<>();
+        for (long coordinate : coordinates) {
+            list.add(new BPos(PackedPos.x(coordinate), 0, PackedPos.z(coordinate)));
+        }
+        return list;
     }
 
     private boolean hasVillage() {
-        Village village = new Village(Config.VERSION);
-        CPos villagePos = village.getInRegion(structureSeed, 0, 0, chunkRand);
-
-        return village.isValidBiome(overworldBiomeSource.getBiome(villagePos.toBlockPos()));
+        return context.getVillageStructure().isValidBiome(overworldBiomeSource.getBiome(PackedPos.x(villagePos) << 4, 0, PackedPos.z(villagePos) << 4));
     }
 
     private boolean hasTemple() {
-        DesertPyramid temple = new DesertPyramid(Config.VERSION);
-        CPos templePos = temple.getInRegion(structureSeed, 0, 0, chunkRand);
-
-        return temple.isValidBiome(overworldBiomeSource.getBiome(templePos.toBlockPos()));
+        return context.getTempleStructure().isValidBiome(overworldBiomeSource.getBiome(PackedPos.x(templePos) << 4, 0, PackedPos.z(templePos) << 4));
     }
 
-    private boolean hasMidgameTemples(int minCount) {
-        DesertPyramid temple = new DesertPyramid(Config.VERSION);
+    private int midgameTemples() {
         int count = 0;
 
         for (int x = -2; x <= 1; x++) {
@@ -123,25 +130,23 @@ public class OverworldBiomeFilter {
                     break;
                 }
 
-                CPos templePos = temple.getInRegion(structureSeed, x, z, chunkRand);
+                long templePos = context.getTemple(x, z);
 
-                if (temple.isValidBiome(overworldBiomeSource.getBiome(templePos.toBlockPos()))) {
+                if (context.getTempleStructure().isValidBiome(overworldBiomeSource.getBiome(PackedPos.x(templePos) << 4, 0, PackedPos.z(templePos) << 4))) {
                     count++;
                 }
             }
         }
 
-        return count >= minCount;
+        return count;
     }
 
     private boolean hasMonument() {
-        Monument mm = new Monument(Config.VERSION);
-
         for (int x = -2; x <= 1; x++) {
             for (int z = -2; z <= 2; z++) {
-                CPos mmPos = mm.getInRegion(structureSeed, x, z, chunkRand);
+                long mmPos = context.getMonument(x, z);
 
-                if (mm.canSpawn(mmPos.getX(), mmPos.getZ(), overworldBiomeSource)) {
+                if (context.getMonumentStructure().canSpawn(PackedPos.x(mmPos), PackedPos.z(mmPos), overworldBiomeSource)) {
                     return true;
                 }
             }
@@ -151,13 +156,11 @@ public class OverworldBiomeFilter {
     }
 
     private boolean hasOutpost() {
-        PillagerOutpost po = new PillagerOutpost(Config.VERSION);
-
         for (int x = -2; x <= 1; x++) {
             for (int z = -2; z <= 2; z++) {
-                CPos poPos = po.getInRegion(structureSeed, x, z, chunkRand);
+                long poPos = context.getOutpost(x, z);
 
-                if (poPos != null && po.canSpawn(poPos.getX(), poPos.getZ(), overworldBiomeSource)) {
+                if (poPos != PackedPos.NONE && context.getOutpostStructure().canSpawn(PackedPos.x(poPos), PackedPos.z(poPos), overworldBiomeSource)) {
                     return true;
                 }
             }
@@ -167,7 +170,6 @@ public class OverworldBiomeFilter {
     }
 
     private boolean hasBiomeTiles() {
-        ArrayList<CPos> specialPositions = new ArrayList<>();
         long specialLayerSeed = BiomeLayer.getLayerSeed(worldSeed, 3);
 
         // 53% to have 3 special tiles
@@ -177,13 +179,13 @@ public class OverworldBiomeFilter {
 
                 // 1 in 13 for a 1024x1024 tile to be special
                 if (Math.floorMod(specialLocalSeed >> 24, 13) == 0) {
-                    specialPositions.add(new CPos(x, z));
+                    specialPositions[specialCount++] = PackedPos.pack(x, z);
                 }
             }
         }
 
         // need at least 3 special tiles for badlands, jungle, mega taiga
-        if (specialPositions.size() < 3) {
+        if (specialCount < 3) {
             return false;
         }
 
@@ -196,34 +198,35 @@ public class OverworldBiomeFilter {
 
                 // 1 in 100 for a 256x256 tile to be mushroom
                 if (Math.floorMod(mushroomLocalSeed >> 24, 100) == 0) {
-                    mushroomPositions.add(new CPos(x, z));
+                    mushroomPositions[mushroomCount++] = PackedPos.pack(x, z);
                 }
             }
         }
 
-        if (mushroomPositions.isEmpty()) {
+        if (mushroomCount == 0) {
             return false;
         }
 
         boolean badlands = false;
         boolean jungle = false;
         boolean megaTaiga = false;
-        for (CPos pos: specialPositions) {
-            if (biomeLayer9.sample(pos.getX(), 0, pos.getZ()) != 0) {
-                switch (biomeLayer11.sample(pos.getX(), 0, pos.getZ())) {
+        for (int i = 0; i < specialCount; i++) {
+            long pos = specialPositions[i];
+            if (biomeLayer9.sample(PackedPos.x(pos), 0, PackedPos.z(pos)) != 0) {
+                switch (biomeLayer11.sample(PackedPos.x(pos), 0, PackedPos.z(pos))) {
                     case 1: {
                         badlands = true;
-                        badlandsPositions.add(pos);
+                        badlandsPositions[badlandsCount++] = pos;
                         break;
                     }
                     case 2: {
                         jungle = true;
-                        junglePositions.add(pos);
+                        junglePositions[jungleCount++] = pos;
                         break;
                     }
                     case 3: {
                         megaTaiga = true;
-                        megaTaigaPositions.add(pos);
+                        megaTaigaPositions[megaTaigaCount++] = pos;
                         break;
                     }
                 }
@@ -239,7 +242,7 @@ public class OverworldBiomeFilter {
             for (int z = -3; z <= 2; z++) {
                 if (biomeLayer11.sample(x, 0, z) == 4) {
                     freezing = true;
-                    snowyPositions.add(new CPos(x, z));
+                    snowyPositions[snowyCount++] = PackedPos.pack(x, z);
                 }
             }
         }
@@ -247,7 +250,8 @@ public class OverworldBiomeFilter {
         return freezing;
     }
 
-    private Pair<Boolean, BPos> hasMushroomBiomes() {
+    // the checks below return a packed block position, or PackedPos.NONE
+    private long hasMushroomBiomes() {
         /*
         id 14 is mushroom_fields
         checking at 256:1
@@ -255,23 +259,24 @@ public class OverworldBiomeFilter {
         id 15 is mushroom_field_shore
         checking at 16:1
         */
-        for (CPos pos: mushroomPositions) {
-            if (biomeLayer16.sample(pos.getX(), 0, pos.getZ()) == 14) {
+        for (int p = 0; p < mushroomCount; p++) {
+            long pos = mushroomPositions[p];
+            if (biomeLayer16.sample(PackedPos.x(pos), 0, PackedPos.z(pos)) == 14) {
                 for (int x = 0; x < 16; x++) {
                     for (int z = 0; z < 16; z++) {
-                        int x_16 = pos.getX() * 16 + x;
-                        int z_16 = pos.getZ() * 16 + z;
+                        int x_16 = PackedPos.x(pos) * 16 + x;
+                        int z_16 = PackedPos.z(pos) * 16 + z;
                         if (biomeLayer31.sample(x_16, 0, z_16) == 15) {
-                            return new Pair<>(true, new BPos(x_16 * 16, 0, z_16 * 16));
+                            return PackedPos.pack(x_16 * 16, z_16 * 16);
                         }
                     }
                 }
             }
         }
-        return new Pair<>(false, null);
+        return PackedPos.NONE;
     }
 
-    private Pair<Boolean, BPos> hasJungleBiomes() {
+    private long hasJungleBiomes() {
         /*
         id 168 is bamboo_jungle
         checking at 256:1
@@ -279,29 +284,10 @@ public class OverworldBiomeFilter {
         id 169 is bamboo_jungle_hills
         checking at 64:1
         */
-        for (CPos pos: junglePositions) {
-            for (int x = 0; x < 4; x++) {
-                for (int z = 0; z < 4; z++) {
-                    int x_256 = pos.getX() * 4 + x;
-                    int z_256 = pos.getZ() * 4 + z;
-                    if (biomeLayer19.sample(x_256, 0, z_256) == 168) {
-                        for (int i = 0; i < 4; i++) {
-                            for (int j = 0; j < 4; j++) {
-                                int x_64 = x_256 * 4 + i;
-                                int z_64 = z_256 * 4 + j;
-                                if (biomeLayer26.sample(x_64, 0, z_64) == 169) {
-                                    return new Pair<>(true, new BPos(x_64 * 64, 0, z_64 * 64));
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return new Pair<>(false, null);
+        return findHills(junglePositions, jungleCount, 168, 169);
     }
 
-    private Pair<Boolean, BPos> hasMegaTaigaBiomes() {
+    private long hasMegaTaigaBiomes() {
         /*
         id 32 is giant_tree_taiga
         checking at 256:1
@@ -309,29 +295,10 @@ public class OverworldBiomeFilter {
         id 33 is giant_tree_taiga_hills
         checking at 64:1
         */
-        for (CPos pos: megaTaigaPositions) {
-            for (int x = 0; x < 4; x++) {
-                for (int z = 0; z < 4; z++) {
-                    int x_256 = pos.getX() * 4 + x;
-                    int z_256 = pos.getZ() * 4 + z;
-                    if (biomeLayer19.sample(x_256, 0, z_256) == 32) {
-                        for (int i = 0; i < 4; i++) {
-                            for (int j = 0; j < 4; j++) {
-                                int x_64 = x_256 * 4 + i;
-                                int z_64 = z_256 * 4 + j;
-                                if (biomeLayer26.sample(x_64, 0, z_64) == 33) {
-                                    return new Pair<>(true, new BPos(x_64 * 64, 0, z_64 * 64));
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return new Pair<>(false, null);
+        return findHills(megaTaigaPositions, megaTaigaCount, 32, 33);
     }
 
-    private Pair<Boolean, BPos> hasBadlandsBiomes() {
+    private long hasBadlandsBiomes() {
         /*
         id 38 is wooded_badlands_plateau
         checking at 256:1
@@ -341,31 +308,32 @@ public class OverworldBiomeFilter {
         */
         boolean woodedBadlandsPlateau;
         boolean badlandsPlateau;
-        for (CPos pos: badlandsPositions) {
+        for (int p = 0; p < badlandsCount; p++) {
+            long pos = badlandsPositions[p];
             woodedBadlandsPlateau = false;
             badlandsPlateau = false;
             for (int x = 0; x < 4; x++) {
                 for (int z = 0; z < 4; z++) {
-                    int x_256 = pos.getX() * 4 + x;
-                    int z_256 = pos.getZ() * 4 + z;
+                    int x_256 = PackedPos.x(pos) * 4 + x;
+                    int z_256 = PackedPos.z(pos) * 4 + z;
                     if (biomeLayer19.sample(x_256, 0, z_256) == 38) {
                         woodedBadlandsPlateau = true;
                         if (badlandsPlateau) {
-                            return new Pair<>(true, new BPos(x_256 * 256, 0, z_256 * 256));
+                            return PackedPos.pack(x_256 * 256, z_256 * 256);
                         }
                     } else if (biomeLayer19.sample(x_256, 0, z_256) == 39) {
                         badlandsPlateau = true;
                         if (woodedBadlandsPlateau) {
-                            return new Pair<>(true, new BPos(x_256 * 256, 0, z_256 * 256));
+                            return PackedPos.pack(x_256 * 256, z_256 * 256);
                         }
                     }
                 }
             }
         }
-        return new Pair<>(false, null);
+        return PackedPos.NONE;
     }
 
-    private Pair<Boolean, BPos> hasSnowyBiomes() {
+    private long hasSnowyBiomes() {
         /*
         id 30 is snowy_taiga
         checking at 256:1
@@ -373,18 +341,24 @@ public class OverworldBiomeFilter {
         id 31 is snowy_taiga_hills
         checking at 64:1
         */
-        for (CPos pos: snowyPositions) {
+        return findHills(snowyPositions, snowyCount, 30, 31);
+    }
+
+    // base biome at 256:1 inside the 1024 tiles, then its hills variant at 64:1
+    private long findHills(long[] positions, int count, int biome, int hills) {
+        for (int p = 0; p < count; p++) {
+            long pos = positions[p];
             for (int x = 0; x < 4; x++) {
                 for (int z = 0; z < 4; z++) {
-                    int x_256 = pos.getX() * 4 + x;
-                    int z_256 = pos.getZ() * 4 + z;
-                    if (biomeLayer19.sample(x_256, 0, z_256) == 30) {
+                    int x_256 = PackedPos.x(pos) * 4 + x;
+                    int z_256 = PackedPos.z(pos) * 4 + z;
+                    if (biomeLayer19.sample(x_256, 0, z_256) == biome) {
                         for (int i = 0; i < 4; i++) {
                             for (int j = 0; j < 4; j++) {
                                 int x_64 = x_256 * 4 + i;
                                 int z_64 = z_256 * 4 + j;
-                                if (biomeLayer26.sample(x_64, 0, z_64) == 31) {
-                                    return new Pair<>(true, new BPos(x_64 * 64, 0, z_64 * 64));
+                                if (biomeLayer26.sample(x_64, 0, z_64) == hills) {
+                                    return PackedPos.pack(x_64 * 64, z_64 * 64);
                                 }
                             }
                         }
@@ -392,6 +366,6 @@ public class OverworldBiomeFilter {
                 }
             }
         }
-        return new Pair<>(false, null);
+        return PackedPos.NONE;
     }
 }
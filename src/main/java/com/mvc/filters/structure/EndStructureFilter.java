@@ -1,71 +1,116 @@
 package com.mvc.filters.structure;
 
 import com.mvc.Config;
-import com.seedfinding.mcbiome.source.EndBiomeSource;
-import com.seedfinding.mccore.rand.ChunkRand;
+import com.mvc.FilterProfile;
+import com.mvc.filters.SeedContext;
+import com.mvc.util.PackedPos;
 import com.seedfinding.mccore.util.data.Pair;
 import com.seedfinding.mccore.util.math.DistanceMetric;
 import com.seedfinding.mccore.util.pos.BPos;
 import com.seedfinding.mccore.util.pos.CPos;
-import com.seedfinding.mccore.util.pos.RPos;
-import com.seedfinding.mcfeature.structure.EndCity;
 import com.seedfinding.mcfeature.structure.generator.Generator;
 import com.seedfinding.mcfeature.structure.generator.structure.EndCityGenerator;
-import com.seedfinding.mcterrain.terrain.EndTerrainGenerator;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Random;
 
 public class EndStructureFilter {
-    private final long structureSeed;
-    private final ChunkRand chunkRand;
-    private BPos gatewayPos;
+    // filterStructures() as separate checks in the same order, see FilterPlan.getStages
+    public static final String[] STAGES = {"city_distance", "city_generation"};
 
-    public EndStructureFilter(long structureSeed, ChunkRand chunkRand) {
-        this.structureSeed = structureSeed;
-        this.chunkRand = chunkRand;
+    private static final int GATEWAY_COUNT = 20;
+    // the first gateway can only be one of 20 fixed spots on the 1024 block ring
+    private static final int[] GATEWAY_X = new int[GATEWAY_COUNT];
+    private static final int[] GATEWAY_Z = new int[GATEWAY_COUNT];
+
+    static {
+        for (int i = 0; i < GATEWAY_COUNT; i++) {
+            double angle = 2.0 * (-1 * Math.PI + 0.15707963267948966 * i);
+            GATEWAY_X[i] = (int) (1024.0 * Math.cos(angle));
+            GATEWAY_Z[i] = (int) (1024.0 * Math.sin(angle));
+        }
+    }
+
+    private final SeedContext context;
+    private final long endCityDistanceSq;
+    private final Random gatewayRandom = new Random();
+    private final int[] gateways = new int[GATEWAY_COUNT];
+    private long structureSeed;
+    private long gatewayPos;
+    private long cityPos;
+
+    // one filter per profile, reused for every seed of the context; the threshold is fixed here
+    public EndStructureFilter(SeedContext context, FilterProfile profile) {
+        this.context = context;
+        this.endCityDistanceSq = (long) profile.getEndCityDistance() * profile.getEndCityDistance();
     }
 
     public boolean filterStructures() {
-        firstGatewayPos();
-        return hasCity();
+        return hasCloseCity() && hasValidCity();
+    }
+
+    public boolean filterStage(int stage) {
+        return stage == 0 ? hasCloseCity() : hasValidCity();
+    }
+
+    // packed block position
+    public long getGatewayPos() {
+        return gatewayPos;
+    }
+
+    // packed chunk position
+    public long getCityPos() {
+        return cityPos;
     }
 
     private void firstGatewayPos() {
-        ArrayList<Integer> gateways = new ArrayList<>();
-        for (int i = 0; i < 20; i++) {
-            gateways.add(i);
+        // same swaps as Collections.shuffle(list, new Random(structureSeed)) on the list 0..19
+        gatewayRandom.setSeed(structureSeed);
+        for (int i = 0; i < GATEWAY_COUNT; i++) {
+            gateways[i] = i;
         }
-        Collections.shuffle(gateways, new Random(structureSeed));
-        double angle = 2.0 * (-1 * Math.PI + 0.15707963267948966 * (gateways.removeLast()));
-        int x = (int) (1024.0 * Math.cos(angle));
-        int z = (int) (1024.0 * Math.sin(angle));
+        for (int i = GATEWAY_COUNT; i > 1; i--) {
+            int j = gatewayRandom.nextInt(i);
+            int swap = gateways[i - 1];
+            gateways[i - 1] = gateways[j];
+            gateways[j] = swap;
+        }
+        int gateway = gateways[GATEWAY_COUNT - 1];
 
-        gatewayPos = new BPos(x, 0, z);
+        gatewayPos = PackedPos.pack(GATEWAY_X[gateway], GATEWAY_Z[gateway]);
     }
 
-    private boolean hasCity() {
-        RPos gatewayRegion = gatewayPos.toRegionPos(20 << 4);
-        EndCity city = new EndCity(Config.VERSION);
-        CPos cityPos = city.getInRegion(structureSeed, gatewayRegion.getX(), gatewayRegion.getZ(), chunkRand);
+    private boolean hasCloseCity() {
+        structureSeed = context.getStructureSeed();
+        firstGatewayPos();
+        int gatewayX = PackedPos.x(gatewayPos);
+        int gatewayZ = PackedPos.z(gatewayPos);
+        cityPos = context.getEndCity(Math.floorDiv(gatewayX, 20 << 4), Math.floorDiv(gatewayZ, 20 << 4));
 
-        if (!(cityPos.distanceTo(gatewayPos.toChunkPos(), DistanceMetric.EUCLIDEAN) <= Config.END_CITY_DISTANCE)) {
-            return false;
+        long gatewayChunk = PackedPos.pack(gatewayX >> 4, gatewayZ >> 4);
+        return PackedPos.distanceSq(cityPos, gatewayChunk) <= endCityDistanceSq;
+    }
+
+    private boolean hasValidCity() {
+        // the city itself is the same for every profile, only generate it once per seed
+        if (context.getEndCityState() == SeedContext.UNKNOWN) {
+            context.setEndCityState(isCityValid() ? SeedContext.VALID : SeedContext.INVALID);
         }
+        return context.getEndCityState() == SeedContext.VALID;
+    }
 
+    private boolean isCityValid() {
+        // only reached by cities next to the gateway, so the generator and its positions may allocate
         EndCityGenerator ecg = new EndCityGenerator(Config.VERSION);
-        EndBiomeSource endBiomeSource = new EndBiomeSource(Config.VERSION, structureSeed);
-        EndTerrainGenerator endTerrainGenerator = new EndTerrainGenerator(endBiomeSource);
+        CPos cityPos = PackedPos.toCPos(this.cityPos);
 
-        if (!ecg.generate(endTerrainGenerator, cityPos, chunkRand)) {
+        if (!ecg.generate(context.getEndTerrainGenerator(), cityPos, context.getChunkRand())) {
             return false;
         }
 
         for (Pair<Generator.ILootType, BPos> e : ecg.getChestsPos()) {
             if (e.getFirst().equals(EndCityGenerator.LootType.SHIP_ELYTRA)) {
+                // a ship cut off from its city, stdout carries nothing but matches, "-" outputs feed it to the next run
                 if (e.getSecond().toChunkPos().distanceTo(cityPos, DistanceMetric.EUCLIDEAN) > 9) {
-                    System.out.println(structureSeed + ": cut off ship found at /execute in minecraft:the_end run tp @s " + e.getSecond().getX() + " ~ " + e.getSecond().getZ());
                     return false;
                 }
             }
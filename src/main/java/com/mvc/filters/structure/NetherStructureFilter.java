@@ -1,65 +1,134 @@
 package com.mvc.filters.structure;
 
 import com.mvc.Config;
-import com.seedfinding.mcbiome.biome.Biome;
+import com.mvc.FilterProfile;
+import com.mvc.filters.SeedContext;
+import com.mvc.filters.terrain.NetherTerrainSampler;
+import com.mvc.filters.terrain.NetherTerrainStrategy;
+import com.mvc.filters.terrain.PathTerrainStrategy;
+import com.mvc.util.PackedPos;
 import com.seedfinding.mcbiome.biome.Biomes;
-import com.seedfinding.mcbiome.source.NetherBiomeSource;
 import com.seedfinding.mccore.block.Block;
 import com.seedfinding.mccore.block.Blocks;
-import com.seedfinding.mccore.rand.ChunkRand;
-import com.seedfinding.mccore.util.math.DistanceMetric;
-import com.seedfinding.mccore.util.pos.BPos;
-import com.seedfinding.mccore.util.pos.CPos;
-import com.seedfinding.mcfeature.structure.BastionRemnant;
-import com.seedfinding.mcfeature.structure.Fortress;
-import com.seedfinding.mcterrain.terrain.NetherTerrainGenerator;
-
-import java.util.*;
 
 public class NetherStructureFilter {
-    private final long structureSeed;
-    private final ChunkRand chunkRand;
-    private CPos bastionPos;
-    private CPos fortressPos;
-    private NetherBiomeSource netherBiomeSource;
-    private NetherTerrainGenerator netherTerrainGenerator;
-
-    private static final int MAX_SEARCH_DEPTH = 250; // Stop after checking 500 chunks
-    private static final int HEURISTIC_WEIGHT = 2; // Multiplier to make it greedy-ish (faster, less perfect)
-
-    public NetherStructureFilter(long structureSeed, ChunkRand chunkRand) {
-        this.structureSeed = structureSeed;
-        this.chunkRand = chunkRand;
+    // filterStructures() and filterApproximate() followed by verify() as separate checks in the same order, see FilterPlan.getStages
+    public static final String[] STAGES = {"bastion", "fortress", "soul_sand_valley", "portal", "terrain"};
+    public static final String[] TIERED_STAGES = {"bastion", "fortress", "soul_sand_valley", "approximate_terrain", "verification"};
+
+    private final SeedContext context;
+    private final long bastionDistanceSq;
+    private final long fortressDistanceSq;
+    private final NetherTerrainStrategy terrain;
+    private final NetherTerrainStrategy approximateTerrain;
+    private final NetherTerrainStrategy exactTerrain;
+    private long bastionPos;
+    private long fortressPos;
+    private double routeCost;
+
+    private static final int PORTAL_SEARCH_RADIUS = 16; // blocks around spawn verify() looks for a portal spot
+
+    // one filter per profile, reused for every seed of the context; thresholds and terrain strategies are fixed here
+    public NetherStructureFilter(SeedContext context, FilterProfile profile) {
+        this.context = context;
+        int bastionDistance = profile.getBastionDistance();
+        this.bastionDistanceSq = (long) bastionDistance * bastionDistance;
+        this.fortressDistanceSq = (long) profile.getFortressDistance() * profile.getFortressDistance();
+        this.terrain = NetherTerrainStrategy.create(profile.getTerrain(), bastionDistance);
+        this.approximateTerrain = profile.getTerrain().equals(Config.TERRAIN_TYPE.PATH) ? PathTerrainStrategy.approximate(bastionDistance) : terrain;
+        this.exactTerrain = PathTerrainStrategy.exact(bastionDistance);
+        // the path search box, a bastion distance and one chunk around the bastion
+        context.getNetherBiomeGrid().ensureRadius(bastionDistance + 1);
     }
 
     public boolean filterStructures() {
-        return hasBastion() && hasFortress() && isSSV() && isSpaceForPortal() && canPathToBastion(new CPos(0, 0), bastionPos);
+        return filterLayout() && isSpaceForPortal() && canReachBastion(terrain);
+    }
+
+    /*
+    First tier of TIERED precision, tuned for recall: no portal check, and with PATH terrain a
+    chunk only blocks the path when a coarse sample of its center column finds no air at all and
+    a search that runs out of depth passes instead of failing.
+    Whatever gets through is decided by verify().
+    */
+    public boolean filterApproximate() {
+        return filterLayout() && canReachBastion(approximateTerrain);
+    }
+
+    // second tier, exact versions of every approximation: portal spot anywhere near spawn, full chunk walkability, uncapped search
+    public boolean verify() {
+        return filterLayout() && hasPortalSpot() && canReachBastion(exactTerrain);
+    }
+
+    public boolean filterStage(int stage) {
+        return switch (stage) {
+            case 0 -> hasBastion();
+            case 1 -> hasFortress();
+            case 2 -> isSSV();
+            case 3 -> isSpaceForPortal();
+            default -> canReachBastion(terrain);
+        };
+    }
+
+    public boolean filterTieredStage(int stage) {
+        return switch (stage) {
+            case 0, 1, 2 -> filterStage(stage);
+            case 3 -> canReachBastion(approximateTerrain);
+            default -> verify();
+        };
+    }
+
+    // every check before terrain: bastion, fortress and the soul sand valley around it
+    public boolean filterLayout() {
+        return hasBastion() && hasFortress() && isSSV();
+    }
+
+    private boolean canReachBastion(NetherTerrainStrategy strategy) {
+        int bastionX = PackedPos.x(bastionPos);
+        int bastionZ = PackedPos.z(bastionPos);
+        if (!strategy.canReachBastion(context.getNetherTerrainSampler(), bastionX, bastionZ)) {
+            return false;
+        }
+        routeCost = strategy.getRouteCost(bastionX, bastionZ);
+        return true;
+    }
+
+    // packed chunk positions
+    public long getBastionPos() {
+        return bastionPos;
+    }
+
+    public long getFortressPos() {
+        return fortressPos;
+    }
+
+    // route cost to the bastion of the last check that passed, see NetherTerrainStrategy.getRouteCost
+    public double getRouteCost() {
+        return routeCost;
     }
 
     private boolean hasBastion() {
-        BastionRemnant bastion = new BastionRemnant(Config.VERSION);
+        bastionPos = PackedPos.NONE;
 
         for (int x = -1; x <= 0; x++) {
             for (int z = -1; z <= 0; z++) {
-                CPos curBastion = bastion.getInRegion(structureSeed, x, z, chunkRand);
-                if (curBastion != null && curBastion.getMagnitude() <= Config.BASTION_DISTANCE) {
-                    if (bastionPos != null) {
+                long curBastion = context.getBastion(x, z);
+                if (PackedPos.isWithinSq(curBastion, bastionDistanceSq)) {
+                    if (bastionPos != PackedPos.NONE) {
                         return false;
                     }
                     bastionPos = curBastion;
                 }
             }
         }
-        return bastionPos != null && bastion.canSpawn(bastionPos, new NetherBiomeSource(Config.VERSION, structureSeed));
+        return bastionPos != PackedPos.NONE && context.getBastionStructure().canSpawn(PackedPos.x(bastionPos), PackedPos.z(bastionPos), context.getNetherBiomeSource());
     }
 
     private boolean hasFortress() {
-        Fortress fortress = new Fortress(Config.VERSION);
-
         for (int x = -1; x <= 0; x++) {
             for (int z = -1; z <= 0; z++) {
-                fortressPos = fortress.getInRegion(structureSeed, x, z, chunkRand);
-                if (fortressPos != null && fortressPos.getMagnitude() <= Config.FORTRESS_DISTANCE) {
+                fortressPos = context.getFortress(x, z);
+                if (PackedPos.isWithinSq(fortressPos, fortressDistanceSq)) {
                     return true;
                 }
             }
@@ -67,104 +136,34 @@ public class NetherStructureFilter {
         return false;
     }
 
-    private boolean canPathToBastion(CPos start, CPos target) {
-        PriorityQueue<Node> openSet = new PriorityQueue<>();
-        Set<CPos> closedSet = new HashSet<>();
-
-        openSet.add(new Node(start, 0, getHeuristic(start, target)));
-
-        int checks = 0;
-
-        while (!openSet.isEmpty()) {
-            Node current = openSet.poll();
-
-            if (checks++ > MAX_SEARCH_DEPTH) return false; // Took too long
-            if (current.pos.equals(target)) return true; // Reached destination
-            if (closedSet.contains(current.pos)) continue; // Already been here
-            if (current.pos.distanceTo(target, DistanceMetric.EUCLIDEAN) > Config.BASTION_DISTANCE) { // Went too far from the target
-                closedSet.add(current.pos);
-                continue;
-            }
-
-            closedSet.add(current.pos);
-
-//            // Check neighbors (North, South, East, West)
-//            int[][] directions = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
-            int[][] directions = getDirections(target);
-
-            for (int[] dir : directions) {
-                CPos neighborPos = new CPos(current.pos.getX() + dir[0], current.pos.getZ() + dir[1]);
-
-                if (closedSet.contains(neighborPos)) continue;
-
-                // 1. Check Physical Terrain (Walls/Lava)
-                if (!isChunkWalkable(neighborPos)) {
-                    continue; // Wall or Lava detected
-                }
-
-                // 2. Calculate Movement Cost (incorporating Biomes)
-                double traversalCost = getBiomeCost(neighborPos);
-                double newGCost = current.gCost + traversalCost;
-                double newHCost = getHeuristic(neighborPos, target);
-
-                openSet.add(new Node(neighborPos, newGCost, newHCost));
-            }
-        }
-        return false; // No path found
-    }
-
-    private static int[][] getDirections(CPos target) {
-        if (Math.abs(target.getX()) < Math.abs(target.getZ())) { // Z is major axis
-            if (target.getZ() < 0) {
-                if (target.getX() < 0) {
-                    return new int[][]{{0, -1}, {-1, 0}, {1, 0}, {0, 1}};
-                } else {
-                    return new int[][]{{0, -1}, {1, 0}, {-1, 0}, {0, 1}};
-                }
-            } else {
-                if (target.getX() < 0) {
-                    return new int[][]{{0, 1}, {-1, 0}, {1, 0}, {0, -1}};
-                } else {
-                    return new int[][]{{0, 1}, {1, 0}, {-1, 0}, {0, -1}};
-                }
-            }
-        } else { // X is major axis
-            if (target.getX() < 0) {
-                if (target.getZ() < 0) {
-                    return new int[][]{{-1, 0}, {0, -1}, {0, 1}, {1, 0}};
-                } else {
-                    return new int[][]{{-1, 0}, {0, 1}, {0, -1}, {1, 0}};
-                }
-            } else {
-                if (target.getZ() < 0) {
-                    return new int[][]{{1, 0}, {0, -1}, {0, 1}, {-1, 0}};
-                } else {
-                    return new int[][]{{1, 0}, {0, 1}, {0, -1}, {-1, 0}};
-                }
-            }
+    private boolean isSpaceForPortal() {
+        // spawn column is the same for every profile
+        if (context.getPortalSpace() == SeedContext.UNKNOWN) {
+            context.setPortalSpace(hasPortalColumn() ? SeedContext.VALID : SeedContext.INVALID);
         }
+        return context.getPortalSpace() == SeedContext.VALID;
     }
 
-    private boolean isSpaceForPortal() {
+    private boolean hasPortalColumn() {
+        NetherTerrainSampler sampler = context.getNetherTerrainSampler();
         int x = 0;
         int z = 0;
-        netherTerrainGenerator = new NetherTerrainGenerator(netherBiomeSource);
 
         // Iterate from just above the lava ocean (32) to the ceiling (approx 120)
         // We look for a solid block that has air immediately above it.
         for (int y = 32; y < 120; y++) {
 
-            Optional<Block> floor = netherTerrainGenerator.getBlockAt(x, y, z);
+            Block floor = sampler.getBlock(x, y, z);
 
             // 1. Check if we have a solid floor
-            if (floor.isPresent() && !floor.get().equals(Blocks.AIR) && !floor.get().equals(Blocks.LAVA)) {
+            if (floor != null && isFloor(floor)) {
 
                 // 2. Check for clearance (space for the portal frame)
                 // We need roughly 3-4 blocks of air above the floor.
                 boolean hasClearance = true;
                 for (int offset = 1; offset <= 4; offset++) {
-                    Optional<Block> airSpace = netherTerrainGenerator.getBlockAt(x, y + offset, z);
-                    if (airSpace.isPresent() && !airSpace.get().equals(Blocks.AIR)) {
+                    Block airSpace = sampler.getBlock(x, y + offset, z);
+                    if (airSpace != null && !airSpace.equals(Blocks.AIR)) {
                         hasClearance = false;
                         break;
                     }
@@ -179,134 +178,44 @@ public class NetherStructureFilter {
         return false; // No valid spot found in the column
     }
 
-    private boolean hasBastionTerrainAirSampling() {
-        Random random = new Random();
-        int air = 0;
-        CPos spawn = new CPos(0, 0);
-
-        while (spawn.getX() != bastionPos.getX() || spawn.getZ() != bastionPos.getZ()) {
-            // move toward bastion along axis we are furthest from
-            if (Math.abs(bastionPos.getX() - spawn.getX()) < Math.abs(bastionPos.getZ() - spawn.getZ())) {
-                spawn = spawn.add(0, bastionPos.getZ() > 0 ? 1 : -1);
-            } else {
-                spawn = spawn.add(bastionPos.getX() > 0 ? 1 : -1, 0);
-            }
-
-            // sample chunk and see if it meets air threshold
-            for (int s = 0; s < 25; s++) {
-                int x = random.nextInt(16);
-                int y = random.nextInt(16);
-                int z = random.nextInt(16);
-
-                Optional<Block> block = netherTerrainGenerator.getBlockAt(spawn.toBlockPos().getX() + x, 57 + y, spawn.toBlockPos().getZ() + z);
-                if (block.isPresent() && block.get().equals(Blocks.AIR)) {
-                    air++;
-                }
-            }
+    private boolean isSSV() {
+        int x = PackedPos.x(fortressPos);
+        int z = PackedPos.z(fortressPos);
+
+        return isSoulSandValley(x, z) &&
+                isSoulSandValley(x - 4, z) &&
+                isSoulSandValley(x + 4, z) &&
+                isSoulSandValley(x, z - 4) &&
+                isSoulSandValley(x, z + 4);
+    }
 
-            if (air < 1) {
-                return false;
-            }
-        }
-        return true;
+    // the zoomed block biome at the chunk's corner, not the grid's noise cell, which can differ at a biome border
+    private boolean isSoulSandValley(int chunkX, int chunkZ) {
+        return context.getNetherBiomeSource().getBiome(chunkX << 4, 0, chunkZ << 4).equals(Biomes.SOUL_SAND_VALLEY);
     }
 
-    private boolean hasBastionTerrainHeightCheck() {
-        NetherTerrainGenerator netherTerrainGenerator = new NetherTerrainGenerator(netherBiomeSource);
-        BPos approxBastion = new BPos(bastionPos.toBlockPos(64));
-
-        for (int i = 1; i <= 10; i++) {
-            double t = (double) i / 10;
-            int x = (int) (approxBastion.getX() * t);
-            int z = (int) (approxBastion.getZ() * t);
-            Block[] column = netherTerrainGenerator.getColumnAt(x, z);
-            int air = 0;
-            boolean lastBlockAir = false;
-
-            for (int b = 40; b < 100; b++) {
-                if (!lastBlockAir && column[b].equals(Blocks.AIR)) {
-                    lastBlockAir = true;
+    // the single spawn column check of isSpaceForPortal, over every column within PORTAL_SEARCH_RADIUS blocks
+    private boolean hasPortalSpot() {
+        NetherTerrainSampler sampler = context.getNetherTerrainSampler();
+        for (int x = -PORTAL_SEARCH_RADIUS; x <= PORTAL_SEARCH_RADIUS; x++) {
+            for (int z = -PORTAL_SEARCH_RADIUS; z <= PORTAL_SEARCH_RADIUS; z++) {
+                if (x * x + z * z > PORTAL_SEARCH_RADIUS * PORTAL_SEARCH_RADIUS) {
                     continue;
                 }
-                if (lastBlockAir && column[b].equals(Blocks.AIR)) {
-                    if (++air > 5) {
+
+                Block[] column = sampler.getColumn(x, z);
+                for (int y = 32; y < 120; y++) {
+                    if (isFloor(column[y]) && column[y + 1].equals(Blocks.AIR) && column[y + 2].equals(Blocks.AIR)
+                            && column[y + 3].equals(Blocks.AIR) && column[y + 4].equals(Blocks.AIR)) {
                         return true;
                     }
                 }
-                if (!column[b].equals(Blocks.AIR)) {
-                    lastBlockAir = false;
-                    air = 0;
-                }
             }
         }
         return false;
     }
 
-    private boolean isSSV() {
-        netherBiomeSource = new NetherBiomeSource(Config.VERSION, structureSeed);
-
-        return netherBiomeSource.getBiome(fortressPos.toBlockPos()).equals(Biomes.SOUL_SAND_VALLEY) &&
-                netherBiomeSource.getBiome(fortressPos.add(-4, 0).toBlockPos()).equals(Biomes.SOUL_SAND_VALLEY) &&
-                netherBiomeSource.getBiome(fortressPos.add(4, 0).toBlockPos()).equals(Biomes.SOUL_SAND_VALLEY) &&
-                netherBiomeSource.getBiome(fortressPos.add(0, -4).toBlockPos()).equals(Biomes.SOUL_SAND_VALLEY) &&
-                netherBiomeSource.getBiome(fortressPos.add(0, 4).toBlockPos()).equals(Biomes.SOUL_SAND_VALLEY);
-    }
-
-    private static class Node implements Comparable<Node> {
-        CPos pos;
-        double gCost; // Cost from start
-        double hCost; // Heuristic (estimated dist to end)
-        double fCost; // Total cost (g + h)
-
-        public Node(CPos pos, double gCost, double hCost) {
-            this.pos = pos;
-            this.gCost = gCost;
-            this.hCost = hCost;
-            this.fCost = gCost + hCost;
-        }
-
-        @Override
-        public int compareTo(Node other) {
-            return Double.compare(this.fCost, other.fCost);
-        }
-    }
-
-    // Manhattan distance is faster than Euclidean and fits grid movement
-    private double getHeuristic(CPos a, CPos b) {
-        return (Math.abs(a.getX() - b.getX()) + Math.abs(a.getZ() - b.getZ())) * HEURISTIC_WEIGHT;
-    }
-
-    private double getBiomeCost(CPos pos) {
-        Biome biome = netherBiomeSource.getBiomeForNoiseGen(pos.getX() * 4, 0, pos.getZ() * 4);
-        // High penalty for Basalt Deltas (obstacles), moderate for Soul Sand (slow)
-        if (biome.getCategory() == Biome.Category.NETHER) {
-            // Note: You'll need to map your specific Biome objects here
-            if (biome.getId() == Biomes.BASALT_DELTAS.getId()) return 8.0;
-            if (biome.getId() == Biomes.SOUL_SAND_VALLEY.getId()) return 2.0;
-        }
-        return 1.0;
-    }
-
-    // The optimized column check from previous discussion
-    private boolean isChunkWalkable(CPos chunkPos) {
-        int centerX = (chunkPos.getX() << 4) + 8;
-        int centerZ = (chunkPos.getZ() << 4) + 8;
-        boolean hasFloor = false;
-
-        // Sparse scan from Y=32 to Y=90
-        for (int y = 32; y < 90; y += 4) {
-            Optional<Block> block = this.netherTerrainGenerator.getBlockAt(centerX, y, centerZ);
-
-            if (block.isPresent()) {
-                if (block.get().equals(Blocks.AIR)) {
-                    if (hasFloor) return true; // Valid space found
-                } else if (!block.get().equals(Blocks.LAVA)) {
-                    hasFloor = true; // Solid ground
-                } else {
-                    hasFloor = false; // Reset on lava
-                }
-            }
-        }
-        return false;
+    private static boolean isFloor(Block block) {
+        return !block.equals(Blocks.AIR) && !block.equals(Blocks.LAVA);
     }
 }
@@ -1,48 +1,67 @@
 package com.mvc.filters.structure;
 
-import com.mvc.Config;
-import com.seedfinding.mccore.rand.ChunkRand;
-import com.seedfinding.mccore.util.pos.CPos;
-import com.seedfinding.mcfeature.structure.DesertPyramid;
-import com.seedfinding.mcfeature.structure.Monument;
-import com.seedfinding.mcfeature.structure.PillagerOutpost;
-import com.seedfinding.mcfeature.structure.Village;
+import com.mvc.FilterProfile;
+import com.mvc.filters.SeedContext;
+import com.mvc.util.PackedPos;
 
 public class OverworldStructureFilter {
-    private final long structureSeed;
-    private final ChunkRand chunkRand;
-
-    public OverworldStructureFilter(long structureSeed, ChunkRand chunkRand) {
-        this.structureSeed = structureSeed;
-        this.chunkRand = chunkRand;
+    // filterStructures() as separate checks in the same order, see FilterPlan.getStages
+    public static final String[] STAGES = {"outpost", "village", "temple", "monument"};
+
+    private final SeedContext context;
+    private final long villageDistanceSq;
+    private final long templeDistanceSq;
+    private final long outpostDistanceSq;
+    private final long monumentDistanceSq;
+    private long villagePos;
+    private long templePos;
+
+    // one filter per profile, reused for every seed of the context; thresholds are fixed here so the checks compare constants
+    public OverworldStructureFilter(SeedContext context, FilterProfile profile) {
+        this.context = context;
+        this.villageDistanceSq = (long) profile.getVillageDistance() * profile.getVillageDistance();
+        this.templeDistanceSq = (long) profile.getTempleDistance() * profile.getTempleDistance();
+        this.outpostDistanceSq = (long) profile.getOutpostDistance() * profile.getOutpostDistance();
+        this.monumentDistanceSq = (long) profile.getMonumentDistance() * profile.getMonumentDistance();
     }
 
     public boolean filterStructures() {
         return hasOutpost() && hasVillage() && hasTemple() && hasMonument();
     }
 
+    public boolean filterStage(int stage) {
+        return switch (stage) {
+            case 0 -> hasOutpost();
+            case 1 -> hasVillage();
+            case 2 -> hasTemple();
+            default -> hasMonument();
+        };
+    }
+
+    public long getVillagePos() {
+        return villagePos;
+    }
+
+    public long getTemplePos() {
+        return templePos;
+    }
+
     private boolean hasVillage() {
-        Village village = new Village(Config.VERSION);
-        CPos villagePos = village.getInRegion(structureSeed, 0, 0, chunkRand);
+        villagePos = context.getVillage(0, 0);
 
-        return villagePos.getMagnitude() <= Config.VILLAGE_DISTANCE;
+        return PackedPos.isWithinSq(villagePos, villageDistanceSq);
     }
 
     private boolean hasTemple() {
-        DesertPyramid temple = new DesertPyramid(Config.VERSION);
-        CPos templePos = temple.getInRegion(structureSeed, 0, 0, chunkRand);
+        templePos = context.getTemple(0, 0);
 
-        return templePos.getMagnitude() <= Config.TEMPLE_DISTANCE;
+        return PackedPos.isWithinSq(templePos, templeDistanceSq);
     }
 
     private boolean hasMonument() {
-        Monument mm = new Monument(Config.VERSION);
-
         for (int x = -2; x <= 1; x++) {
             for (int z = -2; z <= 2; z++) {
-                CPos mmPos = mm.getInRegion(structureSeed, x, z, chunkRand);
-
-                if (mmPos.getMagnitude() <= Config.MONUMENT_DISTANCE) {
+                if (PackedPos.isWithinSq(context.getMonument(x, z), monumentDistanceSq)) {
                     return true;
                 }
             }
@@ -52,13 +71,9 @@ public class OverworldStructureFilter {
     }
 
     private boolean hasOutpost() {
-        PillagerOutpost po = new PillagerOutpost(Config.VERSION);
-
         for (int x = -2; x <= 1; x++) {
             for (int z = -2; z <= 2; z++) {
-                CPos poPos = po.getInRegion(structureSeed, x, z, chunkRand);
-
-                if (poPos != null && poPos.getMagnitude() <= Config.OUTPOST_DISTANCE) {
+                if (PackedPos.isWithinSq(context.getOutpost(x, z), outpostDistanceSq)) {
                     return true;
                 }
             }
@@ -0,0 +1,56 @@
+package com.mvc.filters.terrain;
+
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.block.Block;
+import com.seedfinding.mccore.block.Blocks;
+
+import java.util.Random;
+
+/*
+Walks the chunks from spawn to the bastion along the axis it is furthest from and samples
+random blocks of each, failing once the walk has seen no air at all. Air counts over the whole
+walk, not per chunk, so only a walk whose first chunks are all solid fails. The samples are drawn from a
+Random seeded with the structure seed and the chunk, so a chunk is sampled the same way
+whichever run, thread or walk reaches it.
+*/
+public class AirSamplingTerrainStrategy implements NetherTerrainStrategy {
+    private static final int SAMPLES = 25;
+    private static final int MIN_AIR = 1;
+    private static final int MIN_Y = 57;
+
+    private final Random random = new Random();
+
+    @Override
+    public boolean canReachBastion(NetherTerrainSampler sampler, int bastionX, int bastionZ) {
+        int air = 0;
+        int chunkX = 0;
+        int chunkZ = 0;
+
+        while (chunkX != bastionX || chunkZ != bastionZ) {
+            // move toward bastion along axis we are furthest from
+            if (Math.abs(bastionX - chunkX) < Math.abs(bastionZ - chunkZ)) {
+                chunkZ += bastionZ > 0 ? 1 : -1;
+            } else {
+                chunkX += bastionX > 0 ? 1 : -1;
+            }
+
+            // sample chunk and see if it meets air threshold
+            random.setSeed(sampler.getStructureSeed() ^ PackedPos.pack(chunkX, chunkZ) * 0x9E3779B97F4A7C15L);
+            for (int s = 0; s < SAMPLES; s++) {
+                int x = random.nextInt(16);
+                int y = random.nextInt(16);
+                int z = random.nextInt(16);
+
+                Block block = sampler.getBlock((chunkX << 4) + x, MIN_Y + y, (chunkZ << 4) + z);
+                if (block != null && block.equals(Blocks.AIR)) {
+                    air++;
+                }
+            }
+
+            if (air < MIN_AIR) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
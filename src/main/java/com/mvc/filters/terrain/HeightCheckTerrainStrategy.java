@@ -0,0 +1,41 @@
+package com.mvc.filters.terrain;
+
+import com.seedfinding.mccore.block.Block;
+import com.seedfinding.mccore.block.Blocks;
+
+/*
+Looks at ten columns evenly spaced on the straight line from spawn to the bastion and passes
+when one of them has an open gap, more than MIN_GAP air blocks in a row between y 40 and 100,
+after the first air block of the run.
+*/
+public class HeightCheckTerrainStrategy implements NetherTerrainStrategy {
+    private static final int STEPS = 10;
+    private static final int MIN_GAP = 5;
+    private static final int MIN_Y = 40;
+    private static final int MAX_Y = 100;
+
+    @Override
+    public boolean canReachBastion(NetherTerrainSampler sampler, int bastionX, int bastionZ) {
+        int blockX = bastionX << 4;
+        int blockZ = bastionZ << 4;
+
+        for (int i = 1; i <= STEPS; i++) {
+            double t = (double) i / STEPS;
+            Block[] column = sampler.getColumn((int) (blockX * t), (int) (blockZ * t));
+            int air = 0;
+            boolean lastBlockAir = false;
+
+            for (int y = MIN_Y; y < MAX_Y; y++) {
+                if (!column[y].equals(Blocks.AIR)) {
+                    lastBlockAir = false;
+                    air = 0;
+                } else if (!lastBlockAir) {
+                    lastBlockAir = true;
+                } else if (++air > MIN_GAP) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
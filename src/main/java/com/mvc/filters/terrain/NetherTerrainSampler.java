@@ -0,0 +1,66 @@
+package com.mvc.filters.terrain;
+
+import com.mvc.filters.SeedContext;
+import com.seedfinding.mccore.block.Block;
+
+import java.util.Arrays;
+
+/*
+Terrain access shared by every nether terrain strategy and profile checking the same seed. The
+generator builds a whole column for any block lookup, so columns are kept in a small direct
+mapped cache: a strategy probing several heights of one column, or two strategies walking the
+same chunks, only pay for the column once.
+*/
+public class NetherTerrainSampler {
+    private static final int CACHE_BITS = 10;
+    private static final int CACHE_SIZE = 1 << CACHE_BITS;
+
+    private final SeedContext context;
+    private final long[] cachedKeys = new long[CACHE_SIZE];
+    private final int[] cachedStamps = new int[CACHE_SIZE];
+    private final Block[][] cachedColumns = new Block[CACHE_SIZE][];
+    private int stamp = 1;
+
+    public NetherTerrainSampler(SeedContext context) {
+        this.context = context;
+    }
+
+    // forgets every column, called whenever the context moves to another seed
+    public void clear() {
+        if (++stamp == 0) {
+            Arrays.fill(cachedStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    public long getStructureSeed() {
+        return context.getStructureSeed();
+    }
+
+    public Block[] getColumn(int x, int z) {
+        long key = ((long) x << 32) | (z & 0xFFFFFFFFL);
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - CACHE_BITS));
+        if (cachedStamps[slot] != stamp || cachedKeys[slot] != key) {
+            cachedKeys[slot] = key;
+            cachedStamps[slot] = stamp;
+            cachedColumns[slot] = context.getNetherTerrainGenerator().getColumnAt(x, z);
+        }
+        return cachedColumns[slot];
+    }
+
+    // null above or below the world, like an empty getBlockAt
+    public Block getBlock(int x, int y, int z) {
+        Block[] column = getColumn(x, z);
+        return y >= 0 && y < column.length ? column[y] : null;
+    }
+
+    // keeps the noise biome ids of the chunks around a path search's target, see NetherBiomeGrid
+    public void centerNoiseBiomes(int chunkX, int chunkZ) {
+        context.getNetherBiomeGrid().center(chunkX, chunkZ);
+    }
+
+    // id of the biome the terrain noise used for a chunk, see NetherBiomeGrid
+    public int getNoiseBiomeId(int chunkX, int chunkZ) {
+        return context.getNetherBiomeGrid().getBiomeId(chunkX, chunkZ);
+    }
+}
@@ -0,0 +1,29 @@
+package com.mvc.filters.terrain;
+
+import com.mvc.Config;
+
+/*
+How the nether filter decides whether terrain lets a player get from the portal at spawn to
+the bastion. Every strategy is deterministic, the same seed always gives the same answer, and
+reads terrain only through the sampler, so strategies can be swapped per profile (key
+"terrain") and compared against each other with com.mvc.TerrainComparison.
+
+Strategies keep search state between calls and are not thread safe, like the filters owning them.
+*/
+public interface NetherTerrainStrategy {
+    // bastion position in chunks, the sampler is on the seed being checked
+    boolean canReachBastion(NetherTerrainSampler sampler, int bastionX, int bastionZ);
+
+    // cost of the route the last passing canReachBastion found, the chunk distance for strategies that find no route
+    default double getRouteCost(int bastionX, int bastionZ) {
+        return Math.abs(bastionX) + Math.abs(bastionZ);
+    }
+
+    static NetherTerrainStrategy create(Config.TERRAIN_TYPE type, int bastionDistance) {
+        return switch (type) {
+            case PATH -> PathTerrainStrategy.standard(bastionDistance);
+            case AIR_SAMPLING -> new AirSamplingTerrainStrategy();
+            case HEIGHT_CHECK -> new HeightCheckTerrainStrategy();
+        };
+    }
+}
@@ -0,0 +1,298 @@
+package com.mvc.filters.terrain;
+
+import com.mvc.util.PackedPos;
+import com.seedfinding.mcbiome.biome.Biomes;
+import com.seedfinding.mccore.block.Block;
+import com.seedfinding.mccore.block.Blocks;
+
+import java.util.Arrays;
+
+/*
+A* over chunks from spawn to the bastion, never leaving the bastion distance around the target.
+Chunks that fail the walkability check are walls, the others cost more in slow or obstructed
+biomes. The three settings differ in how a chunk is judged and how long the search may run:
+
+standard()     sparse samples of the center column, gives up after MAX_SEARCH_DEPTH chunks
+approximate()  any air in the center column, a search that gives up passes
+exact()        every column of the chunk, no limit
+*/
+public class PathTerrainStrategy implements NetherTerrainStrategy {
+    private static final int MAX_SEARCH_DEPTH = 250; // Stop after checking 500 chunks
+    private static final int HEURISTIC_WEIGHT = 2; // Multiplier to make it greedy-ish (faster, less perfect)
+    private static final int PATH_FOUND = 0;
+    private static final int NO_PATH = 1;
+    private static final int GAVE_UP = 2;
+    private static final int WALKABLE_LOOSE = 0;
+    private static final int WALKABLE_SPARSE = 1;
+    private static final int WALKABLE_EXACT = 2;
+    private static final int BASALT_DELTAS = Biomes.BASALT_DELTAS.getId();
+    private static final int SOUL_SAND_VALLEY = Biomes.SOUL_SAND_VALLEY.getId();
+
+    // neighbour orders for getDirections, as {dx0, dz0, dx1, dz1, ...}
+    private static final int[] Z_NEG_X_NEG = {0, -1, -1, 0, 1, 0, 0, 1};
+    private static final int[] Z_NEG_X_POS = {0, -1, 1, 0, -1, 0, 0, 1};
+    private static final int[] Z_POS_X_NEG = {0, 1, -1, 0, 1, 0, 0, -1};
+    private static final int[] Z_POS_X_POS = {0, 1, 1, 0, -1, 0, 0, -1};
+    private static final int[] X_NEG_Z_NEG = {-1, 0, 0, -1, 0, 1, 1, 0};
+    private static final int[] X_NEG_Z_POS = {-1, 0, 0, 1, 0, -1, 1, 0};
+    private static final int[] X_POS_Z_NEG = {1, 0, 0, -1, 0, 1, -1, 0};
+    private static final int[] X_POS_Z_POS = {1, 0, 0, 1, 0, -1, -1, 0};
+
+    private final long bastionDistanceSq;
+    private final int searchRadius;
+    private final int searchWidth;
+    private final int maxChecks;
+    private final int heuristicWeight;
+    private final int walkability;
+    private final boolean passOnGiveUp;
+
+    // A* state kept between seeds: open set as a binary heap over parallel arrays, closed set as a
+    // stamped grid around the target (every chunk the search touches is within distance + 1 of it)
+    private double[] openF = new double[1024];
+    private double[] openG = new double[1024];
+    private long[] openPos = new long[1024];
+    private int openSize;
+    private final int[] closed;
+    private int closedStamp;
+    private double pathCost;
+
+    private PathTerrainStrategy(int bastionDistance, int maxChecks, int heuristicWeight, int walkability, boolean passOnGiveUp) {
+        this.bastionDistanceSq = (long) bastionDistance * bastionDistance;
+        this.searchRadius = bastionDistance + 1;
+        this.searchWidth = searchRadius * 2 + 1;
+        this.closed = new int[searchWidth * searchWidth];
+        this.maxChecks = maxChecks;
+        this.heuristicWeight = heuristicWeight;
+        this.walkability = walkability;
+        this.passOnGiveUp = passOnGiveUp;
+    }
+
+    public static PathTerrainStrategy standard(int bastionDistance) {
+        return new PathTerrainStrategy(bastionDistance, MAX_SEARCH_DEPTH, HEURISTIC_WEIGHT, WALKABLE_SPARSE, false);
+    }
+
+    // first tier of TIERED precision, tuned for recall: only solid walls and lava seas block the path
+    public static PathTerrainStrategy approximate(int bastionDistance) {
+        return new PathTerrainStrategy(bastionDistance, MAX_SEARCH_DEPTH, HEURISTIC_WEIGHT, WALKABLE_LOOSE, true);
+    }
+
+    public static PathTerrainStrategy exact(int bastionDistance) {
+        return new PathTerrainStrategy(bastionDistance, Integer.MAX_VALUE, 1, WALKABLE_EXACT, false);
+    }
+
+    @Override
+    public boolean canReachBastion(NetherTerrainSampler sampler, int bastionX, int bastionZ) {
+        int result = searchPath(sampler, bastionX, bastionZ);
+        return result == PATH_FOUND || (passOnGiveUp && result == GAVE_UP);
+    }
+
+    // biome weighted cost of the path found, a search that gave up and passed counts the straight chunk distance
+    @Override
+    public double getRouteCost(int bastionX, int bastionZ) {
+        return Double.isNaN(pathCost) ? NetherTerrainStrategy.super.getRouteCost(bastionX, bastionZ) : pathCost;
+    }
+
+    // PATH_FOUND, NO_PATH or GAVE_UP after maxChecks
+    private int searchPath(NetherTerrainSampler sampler, int targetX, int targetZ) {
+        int startX = 0;
+        int startZ = 0;
+        int radius = searchRadius;
+        int width = searchWidth;
+        if (++closedStamp == 0) {
+            Arrays.fill(closed, 0);
+            closedStamp = 1;
+        }
+        openSize = 0;
+        pathCost = Double.NaN;
+        sampler.centerNoiseBiomes(targetX, targetZ);
+
+        offer(PackedPos.pack(startX, startZ), 0, getHeuristic(startX, startZ, targetX, targetZ));
+
+        int checks = 0;
+        int[] directions = getDirections(targetX, targetZ);
+
+        while (openSize > 0) {
+            long current = openPos[0];
+            double currentG = openG[0];
+            poll();
+            int currentX = PackedPos.x(current);
+            int currentZ = PackedPos.z(current);
+            int closedIndex = (currentX - targetX + radius) * width + currentZ - targetZ + radius;
+
+            if (checks++ > maxChecks) return GAVE_UP; // Took too long
+            if (currentX == targetX && currentZ == targetZ) { // Reached destination
+                pathCost = currentG;
+                return PATH_FOUND;
+            }
+            if (closed[closedIndex] == closedStamp) continue; // Already been here
+            long dx = currentX - targetX;
+            long dz = currentZ - targetZ;
+            if (dx * dx + dz * dz > bastionDistanceSq) { // Went too far from the target
+                closed[closedIndex] = closedStamp;
+                continue;
+            }
+
+            closed[closedIndex] = closedStamp;
+
+            for (int d = 0; d < directions.length; d += 2) {
+                int neighborX = currentX + directions[d];
+                int neighborZ = currentZ + directions[d + 1];
+
+                if (closed[(neighborX - targetX + radius) * width + neighborZ - targetZ + radius] == closedStamp) continue;
+
+                // 1. Check Physical Terrain (Walls/Lava)
+                if (!isChunkWalkable(sampler, neighborX, neighborZ)) {
+                    continue; // Wall or Lava detected
+                }
+
+                // 2. Calculate Movement Cost (incorporating Biomes)
+                double traversalCost = getBiomeCost(sampler, neighborX, neighborZ);
+                double newGCost = currentG + traversalCost;
+                double newHCost = getHeuristic(neighborX, neighborZ, targetX, targetZ);
+
+                offer(PackedPos.pack(neighborX, neighborZ), newGCost, newGCost + newHCost);
+            }
+        }
+        return NO_PATH;
+    }
+
+    // same sift order as java.util.PriorityQueue so ties between equal f costs resolve identically
+    private void offer(long pos, double gCost, double fCost) {
+        if (openSize == openPos.length) {
+            openF = Arrays.copyOf(openF, openSize * 2);
+            openG = Arrays.copyOf(openG, openSize * 2);
+            openPos = Arrays.copyOf(openPos, openSize * 2);
+        }
+
+        int k = openSize++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (Double.compare(fCost, openF[parent]) >= 0) {
+                break;
+            }
+            openF[k] = openF[parent];
+            openG[k] = openG[parent];
+            openPos[k] = openPos[parent];
+            k = parent;
+        }
+        openF[k] = fCost;
+        openG[k] = gCost;
+        openPos[k] = pos;
+    }
+
+    private void poll() {
+        int n = --openSize;
+        if (n == 0) {
+            return;
+        }
+
+        double fCost = openF[n];
+        double gCost = openG[n];
+        long pos = openPos[n];
+        int k = 0;
+        int half = n >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int right = child + 1;
+            if (right < n && Double.compare(openF[child], openF[right]) > 0) {
+                child = right;
+            }
+            if (Double.compare(fCost, openF[child]) <= 0) {
+                break;
+            }
+            openF[k] = openF[child];
+            openG[k] = openG[child];
+            openPos[k] = openPos[child];
+            k = child;
+        }
+        openF[k] = fCost;
+        openG[k] = gCost;
+        openPos[k] = pos;
+    }
+
+    private static int[] getDirections(int targetX, int targetZ) {
+        if (Math.abs(targetX) < Math.abs(targetZ)) { // Z is major axis
+            if (targetZ < 0) {
+                return targetX < 0 ? Z_NEG_X_NEG : Z_NEG_X_POS;
+            } else {
+                return targetX < 0 ? Z_POS_X_NEG : Z_POS_X_POS;
+            }
+        } else { // X is major axis
+            if (targetX < 0) {
+                return targetZ < 0 ? X_NEG_Z_NEG : X_NEG_Z_POS;
+            } else {
+                return targetZ < 0 ? X_POS_Z_NEG : X_POS_Z_POS;
+            }
+        }
+    }
+
+    // Manhattan distance is faster than Euclidean and fits grid movement
+    private double getHeuristic(int x, int z, int targetX, int targetZ) {
+        return (Math.abs(x - targetX) + Math.abs(z - targetZ)) * heuristicWeight;
+    }
+
+    // every biome of the nether source is in the NETHER category, the id alone decides
+    private static double getBiomeCost(NetherTerrainSampler sampler, int chunkX, int chunkZ) {
+        int biome = sampler.getNoiseBiomeId(chunkX, chunkZ);
+        // High penalty for Basalt Deltas (obstacles), moderate for Soul Sand (slow)
+        if (biome == BASALT_DELTAS) return 8.0;
+        if (biome == SOUL_SAND_VALLEY) return 2.0;
+        return 1.0;
+    }
+
+    private boolean isChunkWalkable(NetherTerrainSampler sampler, int chunkX, int chunkZ) {
+        if (walkability == WALKABLE_LOOSE) {
+            return isChunkOpen(sampler, chunkX, chunkZ);
+        }
+        return walkability == WALKABLE_SPARSE ? isChunkWalkableSparse(sampler, chunkX, chunkZ) : isChunkWalkableExact(sampler, chunkX, chunkZ);
+    }
+
+    // any air in every 8th block of the center column, only solid walls and lava seas fail
+    private static boolean isChunkOpen(NetherTerrainSampler sampler, int chunkX, int chunkZ) {
+        Block[] column = sampler.getColumn((chunkX << 4) + 8, (chunkZ << 4) + 8);
+
+        for (int y = 32; y < 90; y += 8) {
+            if (column[y].equals(Blocks.AIR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The optimized column check from previous discussion
+    private static boolean isChunkWalkableSparse(NetherTerrainSampler sampler, int chunkX, int chunkZ) {
+        Block[] column = sampler.getColumn((chunkX << 4) + 8, (chunkZ << 4) + 8);
+        boolean hasFloor = false;
+
+        // Sparse scan from Y=32 to Y=90
+        for (int y = 32; y < 90; y += 4) {
+            if (column[y].equals(Blocks.AIR)) {
+                if (hasFloor) return true; // Valid space found
+            } else if (!column[y].equals(Blocks.LAVA)) {
+                hasFloor = true; // Solid ground
+            } else {
+                hasFloor = false; // Reset on lava
+            }
+        }
+        return false;
+    }
+
+    // every column of the chunk, walkable once one has a floor with two blocks of air above it
+    private static boolean isChunkWalkableExact(NetherTerrainSampler sampler, int chunkX, int chunkZ) {
+        for (int x = chunkX << 4; x < (chunkX << 4) + 16; x++) {
+            for (int z = chunkZ << 4; z < (chunkZ << 4) + 16; z++) {
+                Block[] column = sampler.getColumn(x, z);
+                for (int y = 32; y < 90; y++) {
+                    if (isFloor(column[y]) && column[y + 1].equals(Blocks.AIR) && column[y + 2].equals(Blocks.AIR)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFloor(Block block) {
+        return !block.equals(Blocks.AIR) && !block.equals(Blocks.LAVA);
+    }
+}
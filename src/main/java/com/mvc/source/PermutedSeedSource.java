@@ -0,0 +1,35 @@
+package com.mvc.source;
+
+import com.mvc.util.SeedPermutation;
+
+// Seeds at permutation indices [startIndex, endIndex), see SeedPermutation
+public class PermutedSeedSource implements SeedSource {
+    private final SeedPermutation permutation;
+    private final long endIndex;
+    private long nextIndex;
+
+    public PermutedSeedSource(SeedPermutation permutation, long startIndex, long endIndex) {
+        this.permutation = permutation;
+        this.nextIndex = startIndex;
+        this.endIndex = Math.min(endIndex, SeedPermutation.SIZE);
+    }
+
+    @Override
+    public int next(long[] batch) {
+        if (nextIndex >= endIndex) {
+            return -1;
+        }
+
+        int count = (int) Math.min(batch.length, endIndex - nextIndex);
+        for (int i = 0; i < count; i++) {
+            batch[i] = permutation.seedAt(nextIndex + i);
+        }
+        nextIndex += count;
+        return count;
+    }
+
+    @Override
+    public void skip(long count) {
+        nextIndex += count;
+    }
+}
@@ -0,0 +1,33 @@
+package com.mvc.source;
+
+// Consecutive structure seeds in [start, end)
+public class RangeSeedSource implements SeedSource {
+    private static final long MASK = (1L << 48) - 1;
+
+    private final long end;
+    private long next;
+
+    public RangeSeedSource(long start, long end) {
+        this.next = start;
+        this.end = end;
+    }
+
+    @Override
+    public int next(long[] batch) {
+        if (next >= end) {
+            return -1;
+        }
+
+        int count = (int) Math.min(batch.length, end - next);
+        for (int i = 0; i < count; i++) {
+            batch[i] = (next + i) & MASK;
+        }
+        next += count;
+        return count;
+    }
+
+    @Override
+    public void skip(long count) {
+        next += count;
+    }
+}
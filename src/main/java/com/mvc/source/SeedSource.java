@@ -0,0 +1,36 @@
+package com.mvc.source;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Produces seeds in primitive batches, implementations are only ever read from one thread
+public interface SeedSource extends Closeable {
+    // fills batch from index 0 and returns how many seeds were written, -1 once the source is exhausted
+    int next(long[] batch) throws IOException;
+
+    // packed structure positions a source keeps per seed, see StructureSeedStore; 0 for plain seeds
+    default int getPositionCount() {
+        return 0;
+    }
+
+    // like next(batch), also copies getPositionCount() positions per seed into positions
+    default int next(long[] batch, long[] positions) throws IOException {
+        return next(batch);
+    }
+
+    // drops the first count seeds, used to resume a checkpointed run
+    default void skip(long count) throws IOException {
+        long[] batch = new long[4096];
+        while (count > 0) {
+            int read = next(batch);
+            if (read < 0) {
+                return;
+            }
+            count -= read;
+        }
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
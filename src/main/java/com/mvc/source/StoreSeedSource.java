@@ -0,0 +1,49 @@
+package com.mvc.source;
+
+import com.mvc.store.StructureSeedStore;
+
+import java.io.IOException;
+
+// Structure seeds of an earlier STRUCTURE phase run with the positions it stored, in seed order
+public class StoreSeedSource implements SeedSource {
+    private final StructureSeedStore.Reader reader;
+    private final long afterSeed;
+    private final long[] record = new long[StructureSeedStore.POSITION_COUNT];
+
+    // skips every seed up to and including afterSeed
+    public StoreSeedSource(StructureSeedStore store, long afterSeed) throws IOException {
+        this.reader = store.openReader();
+        this.afterSeed = afterSeed;
+    }
+
+    @Override
+    public int getPositionCount() {
+        return StructureSeedStore.POSITION_COUNT;
+    }
+
+    @Override
+    public int next(long[] batch) throws IOException {
+        return next(batch, null);
+    }
+
+    @Override
+    public int next(long[] batch, long[] positions) throws IOException {
+        int count = 0;
+        while (count < batch.length && reader.next()) {
+            long seed = reader.seed();
+            if (seed > afterSeed) {
+                if (positions != null) {
+                    reader.positions(record);
+                    System.arraycopy(record, 0, positions, count * record.length, record.length);
+                }
+                batch[count++] = seed;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,106 @@
+package com.mvc.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+Seeds read as text from a file, a named pipe or stdin. Whitespace separated numbers are seeds;
+the first token that is not a number skips the rest of its line, so a previous run's output
+("seed [coordinates]") can be piped straight into the next run. A number ends at its first
+non-digit, which also starts the skipped rest of the line: "123,456" and "123: note" are the
+seed 123, the first column of a CSV file is read.
+
+A number past the 64 bit range is an error rather than a skipped comment, so a damaged input is
+reported instead of silently searching other seeds.
+*/
+public class StreamSeedSource implements SeedSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long line = 1;
+
+    public StreamSeedSource(InputStream input) {
+        this.input = input;
+    }
+
+    @Override
+    public int next(long[] batch) throws IOException {
+        int count = 0;
+
+        while (count < batch.length) {
+            // only block for more input while the batch is empty, a slow pipe still gets its seeds through
+            if (count > 0 && position == limit && input.available() == 0) {
+                break;
+            }
+
+            int c = read();
+            if (c < 0) {
+                break;
+            }
+            if (Character.isWhitespace(c)) {
+                if (c == '\n') {
+                    line++;
+                }
+                continue;
+            }
+
+            boolean negative = c == '-';
+            boolean digits = false;
+            boolean overflow = false;
+            long value = 0; // accumulated negative, so Long.MIN_VALUE parses too
+            if (negative) {
+                c = read();
+            }
+            while (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                overflow |= value < (Long.MIN_VALUE + digit) / 10;
+                value = value * 10 - digit;
+                digits = true;
+                c = read();
+            }
+            if (digits) {
+                if (overflow || (!negative && value == Long.MIN_VALUE)) {
+                    throw new IOException("Seed out of the 64 bit range on line " + line);
+                }
+                batch[count++] = negative ? value : -value;
+            }
+
+            // after a number's first non-digit, or in a line that is not a number, ignore the rest of the line
+            if (digits && (c < 0 || Character.isWhitespace(c))) {
+                if (c == '\n') {
+                    line++;
+                }
+                continue;
+            }
+            while (c >= 0 && c != '\n') {
+                c = read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = input.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (input != System.in) {
+            input.close();
+        }
+    }
+}
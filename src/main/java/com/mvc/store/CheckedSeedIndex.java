@@ -0,0 +1,306 @@
+package com.mvc.store;
+
+import com.mvc.util.ConfigurationTag;
+import com.mvc.util.SeedPermutation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Structure seeds earlier runs already checked, so overlapping inputs are not filtered twice. An
+index only holds runs with the same filter configuration: its files are named by the
+ConfigurationTag of the configuration, and a run with other thresholds opens a different index.
+
+<tag>.ranges  dense coverage, run length coded: INCREMENTAL runs add the seed range they
+              finished, RANDOM campaigns the permutation index range under their key
+<tag>.bloom   sparse coverage, a memory mapped Bloom filter of seeds from FILE and STDIN inputs
+<tag>.txt     the configuration, for people
+
+Ranges are exact. The Bloom filter answers "checked" for a small share of seeds that never were,
+about 1% at 100 million seeds in the default 2^30 bits; those are skipped like real duplicates.
+
+Seeds are only added at checkpoints, after the matches of everything checked so far are
+flushed, so a killed run never leaves a seed marked whose match was lost. Sparse seeds wait in a
+bounded buffer until then, a full buffer has to be checkpointed before the next seed is added,
+like a full store segment.
+*/
+public class CheckedSeedIndex implements Closeable {
+    private static final int MAGIC = 0x43534958;
+    private static final int HEADER_BYTES = 8;
+
+    private final File rangesFile;
+    private final FileChannel bloomChannel;
+    private final MappedByteBuffer bloomBuffer;
+    private final LongBuffer bloom;
+    private final long bloomMask;
+    private final int bloomHashes;
+    private final long[] pending;
+    private int pendingCount;
+    // loaded once and never changed, workers read them without locking
+    private final RangeSet seedRanges;
+    private final long[] permutationKeys;
+    private final SeedPermutation[] permutations;
+    private final RangeSet[] permutationRanges;
+    // what the next checkpoint writes, the loaded ranges plus this run's coverage
+    private final Map<Long, RangeSet> recordedRanges = new LinkedHashMap<>();
+    private final LongAdder skipped = new LongAdder();
+    private boolean hasCoverage;
+    private boolean coversPermutation;
+    private long coverageKey;
+    private long coverageStart;
+
+    public CheckedSeedIndex(File directory, String configuration, long bloomBits, int bloomHashes, int pendingCapacity) throws IOException {
+        if (Long.bitCount(bloomBits) != 1 || bloomBits < 64 || bloomBits > 1L << 33) {
+            throw new IllegalArgumentException("Bloom filter bits must be a power of two from 2^6 to 2^33, not " + bloomBits);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+
+        String tag = ConfigurationTag.of(configuration);
+        File description = new File(directory, tag + ".txt");
+        if (!description.isFile()) {
+            Files.write(description.toPath(), (configuration + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        this.rangesFile = new File(directory, tag + ".ranges");
+        recordedRanges.put(null, new RangeSet());
+        loadRanges();
+        this.seedRanges = recordedRanges.get(null).copy();
+        ArrayList<Long> keys = new ArrayList<>(recordedRanges.keySet());
+        keys.remove(null);
+        this.permutationKeys = new long[keys.size()];
+        this.permutations = new SeedPermutation[keys.size()];
+        this.permutationRanges = new RangeSet[keys.size()];
+        for (int k = 0; k < keys.size(); k++) {
+            permutationKeys[k] = keys.get(k);
+            permutations[k] = new SeedPermutation(keys.get(k));
+            permutationRanges[k] = recordedRanges.get(keys.get(k)).copy();
+        }
+
+        // an existing filter keeps its size and hash count, the Config values only shape new ones
+        File bloomFile = new File(directory, tag + ".bloom");
+        boolean exists = bloomFile.isFile() && bloomFile.length() > HEADER_BYTES;
+        this.bloomChannel = FileChannel.open(bloomFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long bytes = exists ? bloomChannel.size() : HEADER_BYTES + bloomBits / 8;
+        this.bloomBuffer = bloomChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        if (exists) {
+            if (bloomBuffer.getInt(0) != MAGIC) {
+                throw new IOException(bloomFile + " is not a checked seed index");
+            }
+            this.bloomHashes = bloomBuffer.getInt(4);
+        } else {
+            bloomBuffer.putInt(0, MAGIC);
+            bloomBuffer.putInt(4, bloomHashes);
+            this.bloomHashes = bloomHashes;
+        }
+        this.bloomMask = (bytes - HEADER_BYTES) * 8 - 1;
+        this.bloom = bloomBuffer.position(HEADER_BYTES).slice().asLongBuffer();
+        this.pending = new long[pendingCapacity];
+    }
+
+    // this run walks seeds upward from start, checkpoints record [start, start + seedsDone)
+    public synchronized void setSeedCoverage(long start) {
+        hasCoverage = true;
+        coversPermutation = false;
+        coverageStart = start;
+    }
+
+    // this run walks a permutation from index start, checkpoints record that index range under the key
+    public synchronized void setPermutationCoverage(long key, long start) {
+        hasCoverage = true;
+        coversPermutation = true;
+        coverageKey = key;
+        coverageStart = start;
+    }
+
+    // whether an earlier run checked the seed, counted for getSkipped()
+    public boolean skip(long seed) {
+        if (isChecked(seed)) {
+            skipped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    private boolean isChecked(long seed) {
+        if (seedRanges.contains(seed)) {
+            return true;
+        }
+        if ((seed >>> 48) == 0) {
+            for (int k = 0; k < permutations.length; k++) {
+                if (permutationRanges[k].contains(permutations[k].indexOf(seed))) {
+                    return true;
+                }
+            }
+        }
+
+        long h1 = mix(seed);
+        long h2 = mix(seed ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < bloomHashes; i++) {
+            long bit = (h1 + i * h2) & bloomMask;
+            if ((bloom.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // a seed of a run without coverage, kept until the next checkpoint; checkpoint first once isFull()
+    public synchronized void add(long seed) {
+        if (hasCoverage) {
+            return;
+        }
+        if (pendingCount == pending.length) {
+            throw new IllegalStateException("Checked seed buffer is full, checkpoint before adding more");
+        }
+        pending[pendingCount++] = seed;
+    }
+
+    public synchronized boolean isFull() {
+        return pendingCount == pending.length;
+    }
+
+    // call once the matches of every seed checked so far are flushed
+    public synchronized void checkpoint(long seedsDone) throws IOException {
+        for (int p = 0; p < pendingCount; p++) {
+            long h1 = mix(pending[p]);
+            long h2 = mix(pending[p] ^ 0x9E3779B97F4A7C15L) | 1;
+            for (int i = 0; i < bloomHashes; i++) {
+                long bit = (h1 + i * h2) & bloomMask;
+                int word = (int) (bit >>> 6);
+                bloom.put(word, bloom.get(word) | (1L << bit));
+            }
+        }
+        if (pendingCount > 0) {
+            bloomBuffer.force();
+            pendingCount = 0;
+        }
+
+        if (hasCoverage && seedsDone > 0) {
+            recordedRanges.computeIfAbsent(coversPermutation ? coverageKey : null, key -> new RangeSet()).add(coverageStart, coverageStart + seedsDone);
+            writeRanges();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        bloomChannel.close();
+    }
+
+    private void loadRanges() throws IOException {
+        if (!rangesFile.isFile()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(rangesFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].equals("seeds")) {
+                    recordedRanges.get(null).add(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                } else if (parts[0].equals("permutation")) {
+                    recordedRanges.computeIfAbsent(Long.parseUnsignedLong(parts[1], 16), key -> new RangeSet())
+                            .add(Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+                }
+            }
+        }
+    }
+
+    private void writeRanges() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Long, RangeSet> entry : recordedRanges.entrySet()) {
+            RangeSet ranges = entry.getValue();
+            for (int r = 0; r < ranges.size; r++) {
+                if (entry.getKey() == null) {
+                    builder.append(String.format("seeds %d %d%n", ranges.starts[r], ranges.ends[r]));
+                } else {
+                    builder.append(String.format("permutation %x %d %d%n", entry.getKey(), ranges.starts[r], ranges.ends[r]));
+                }
+            }
+        }
+
+        File tmp = new File(rangesFile.getPath() + ".tmp");
+        Files.write(tmp.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), rangesFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    // sorted, disjoint half open ranges
+    private static class RangeSet {
+        private long[] starts = new long[4];
+        private long[] ends = new long[4];
+        private int size;
+
+        private boolean contains(long value) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] <= value) {
+                    low = middle + 1;
+                } else if (starts[middle] > value) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // merges with every range it overlaps or touches
+        private void add(long start, long end) {
+            int first = 0;
+            while (first < size && ends[first] < start) {
+                first++;
+            }
+            int last = first;
+            while (last < size && starts[last] <= end) {
+                start = Math.min(start, starts[last]);
+                end = Math.max(end, ends[last]);
+                last++;
+            }
+
+            int removed = last - first;
+            if (removed == 0 && size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            int shift = 1 - removed;
+            System.arraycopy(starts, last, starts, last + shift, size - last);
+            System.arraycopy(ends, last, ends, last + shift, size - last);
+            starts[first] = start;
+            ends[first] = end;
+            size += shift;
+        }
+
+        private RangeSet copy() {
+            RangeSet copy = new RangeSet();
+            copy.starts = Arrays.copyOf(starts, Math.max(1, size));
+            copy.ends = Arrays.copyOf(ends, Math.max(1, size));
+            copy.size = size;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.mvc.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+// Single long checkpoint written atomically so a killed run can resume from it
+public class ProgressFile {
+    private final File file;
+
+    public ProgressFile(File file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return file.isFile();
+    }
+
+    public long read(long defaultValue) throws IOException {
+        if (!file.isFile()) {
+            return defaultValue;
+        }
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? defaultValue : Long.parseLong(content);
+    }
+
+    public void write(long value) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), Long.toString(value).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,316 @@
+package com.mvc.store;
+
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.state.Dimension;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Indexed store of final matches, next to or instead of the text output.
+
+Same layout as StructureSeedStore: a directory of append only segments of fixed width records
+sorted by seed. A record is the seed followed by COLUMN_COUNT packed block positions (x and z
+as two ints, PackedPos.NONE when unused), named per dimension by getColumnNames(). Because
+every segment is sorted, a segment is its own index: a seed lookup is a binary search per
+segment, and range or predicate queries scan the typed columns without parsing any text.
+
+The writer keeps the sorted seeds of every segment in memory and refuses seeds already stored,
+so resumed, sharded and repeated runs can write into one store without duplicates.
+*/
+public class ResultStore {
+    public static final int COLUMN_COUNT = 5;
+
+    private static final int MAGIC = 0x52534453;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int RECORD_SIZE = (1 + COLUMN_COUNT) * Long.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // segments a writer leaves behind before it compacts on close
+    private static final int MAX_SEGMENTS = 16;
+
+    private final File directory;
+    private final Dimension dimension;
+
+    public ResultStore(File directory, Dimension dimension) {
+        this.directory = directory;
+        this.dimension = dimension;
+    }
+
+    // an existing store, its dimension comes from the segment headers
+    public static ResultStore open(File directory) throws IOException {
+        File[] segments = Segments.list(directory);
+        if (segments.length == 0) {
+            throw new FileNotFoundException("No result segments in " + directory);
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(segments[0]))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException(segments[0] + " is not a result segment");
+            }
+            return new ResultStore(directory, Dimension.values()[in.readInt()]);
+        }
+    }
+
+    // what the columns hold, all in block coordinates
+    public static String[] getColumnNames(Dimension dimension) {
+        if (dimension.equals(Dimension.NETHER)) {
+            return new String[]{"bastion", "fortress"};
+        } else if (dimension.equals(Dimension.END)) {
+            return new String[]{"city", "gateway"};
+        }
+        return new String[]{"mushroom", "jungle", "mega_taiga", "snowy", "badlands"};
+    }
+
+    public String[] getColumnNames() {
+        return getColumnNames(dimension);
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public Writer openWriter() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create result store " + directory);
+        }
+        return new Writer();
+    }
+
+    public Reader openReader() throws IOException {
+        return new Reader(Segments.list(directory));
+    }
+
+    // fills columns with the record of seed, false when the store does not hold it
+    public boolean find(long seed, long[] columns) throws IOException {
+        for (File segment : Segments.list(directory)) {
+            try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+                long low = 0;
+                long high = (file.length() - HEADER_SIZE) / RECORD_SIZE - 1;
+                while (low <= high) {
+                    long middle = (low + high) >>> 1;
+                    file.seek(HEADER_SIZE + middle * RECORD_SIZE);
+                    long candidate = file.readLong();
+                    if (candidate < seed) {
+                        low = middle + 1;
+                    } else if (candidate > seed) {
+                        high = middle - 1;
+                    } else {
+                        for (int i = 0; i < COLUMN_COUNT; i++) {
+                            columns[i] = file.readLong();
+                        }
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // merges every segment into one, same crash safety as StructureSeedStore.compact
+    public void compact() throws IOException {
+        File[] segments = Segments.list(directory);
+        if (segments.length < 2) {
+            return;
+        }
+
+        File merged = Segments.merging(directory);
+        long[] columns = new long[COLUMN_COUNT];
+        try (Reader reader = new Reader(segments); DataOutputStream out = openSegment(merged)) {
+            while (reader.next()) {
+                reader.columns(columns);
+                writeRecord(out, reader.seed(), columns);
+            }
+        }
+
+        File target = Segments.next(directory);
+        if (!merged.renameTo(target)) {
+            throw new IOException("Could not rename " + merged + " to " + target);
+        }
+        for (File segment : segments) {
+            if (!segment.delete()) {
+                throw new IOException("Could not delete compacted segment " + segment);
+            }
+        }
+    }
+
+    private DataOutputStream openSegment(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(dimension.ordinal());
+        return out;
+    }
+
+    private static void writeRecord(DataOutputStream out, long seed, long[] columns) throws IOException {
+        out.writeLong(seed);
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            out.writeLong(i < columns.length ? columns[i] : PackedPos.NONE);
+        }
+    }
+
+    public class Writer implements Closeable {
+        // seeds already in a segment, sorted
+        private long[] stored;
+        private final TreeMap<Long, long[]> pending = new TreeMap<>();
+
+        private Writer() throws IOException {
+            stored = new long[0];
+            int size = 0;
+            try (Reader reader = openReader()) {
+                while (reader.next()) {
+                    if (size == stored.length) {
+                        stored = Arrays.copyOf(stored, Math.max(1024, size * 2));
+                    }
+                    stored[size++] = reader.seed();
+                    reader.skip();
+                }
+            }
+            stored = Arrays.copyOf(stored, size);
+        }
+
+        // false when seed is already stored or pending, nothing is written then
+        public boolean append(long seed, long[] columns) {
+            if (Arrays.binarySearch(stored, seed) >= 0 || pending.containsKey(seed)) {
+                return false;
+            }
+            // columns past the given ones are unused, not position 0, 0
+            long[] record = new long[COLUMN_COUNT];
+            Arrays.fill(record, PackedPos.NONE);
+            System.arraycopy(columns, 0, record, 0, Math.min(columns.length, COLUMN_COUNT));
+            pending.put(seed, record);
+            return true;
+        }
+
+        // writes pending records as a new sorted segment
+        public void flush() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            File segment = Segments.next(directory);
+            File tmp = new File(segment.getPath() + ".tmp");
+            try (DataOutputStream out = openSegment(tmp)) {
+                for (Map.Entry<Long, long[]> record : pending.entrySet()) {
+                    writeRecord(out, record.getKey(), record.getValue());
+                }
+            }
+            if (!tmp.renameTo(segment)) {
+                throw new IOException("Could not rename " + tmp + " to " + segment);
+            }
+
+            long[] merged = Arrays.copyOf(stored, stored.length + pending.size());
+            int size = stored.length;
+            for (long seed : pending.keySet()) {
+                merged[size++] = seed;
+            }
+            Arrays.sort(merged);
+            stored = merged;
+            pending.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            if (Segments.list(directory).length > MAX_SEGMENTS) {
+                compact();
+            }
+        }
+    }
+
+    public class Reader implements Closeable {
+        private final ArrayList<DataInputStream> inputs = new ArrayList<>();
+        private final long[] heads;
+        private final long[] headColumns;
+        private final boolean[] exhausted;
+        private boolean started = false;
+        private long seed;
+        private int current = -1;
+
+        private Reader(File[] segments) throws IOException {
+            heads = new long[segments.length];
+            headColumns = new long[segments.length * COLUMN_COUNT];
+            exhausted = new boolean[segments.length];
+
+            for (int i = 0; i < segments.length; i++) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segments[i]), BUFFER_SIZE));
+                inputs.add(in);
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    close();
+                    throw new IOException(segments[i] + " is not a result segment");
+                }
+                int segmentDimension = in.readInt();
+                if (segmentDimension != dimension.ordinal()) {
+                    close();
+                    throw new IOException(segments[i] + " holds " + Dimension.values()[segmentDimension] + " results, expected " + dimension);
+                }
+                advance(i);
+            }
+        }
+
+        // world seeds use all 64 bits, so unlike the structure store there is no free sentinel and the first seed is tracked
+        public boolean next() throws IOException {
+            if (current != -1) {
+                skip();
+            }
+            while (true) {
+                current = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (!exhausted[i] && (current == -1 || heads[i] < heads[current])) {
+                        current = i;
+                    }
+                }
+                if (current == -1) {
+                    return false;
+                }
+
+                long candidate = heads[current];
+                if (started && candidate == seed) {
+                    // same seed from an overlapping segment
+                    advance(current);
+                    continue;
+                }
+
+                started = true;
+                seed = candidate;
+                return true;
+            }
+        }
+
+        public long seed() {
+            return seed;
+        }
+
+        public void columns(long[] target) throws IOException {
+            System.arraycopy(headColumns, current * COLUMN_COUNT, target, 0, COLUMN_COUNT);
+            skip();
+        }
+
+        // moves past the current record without reading its columns
+        public void skip() throws IOException {
+            advance(current);
+            current = -1;
+        }
+
+        private void advance(int segment) throws IOException {
+            DataInputStream in = inputs.get(segment);
+            try {
+                heads[segment] = in.readLong();
+                for (int i = 0; i < COLUMN_COUNT; i++) {
+                    headColumns[segment * COLUMN_COUNT + i] = in.readLong();
+                }
+            } catch (EOFException e) {
+                exhausted[segment] = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+}
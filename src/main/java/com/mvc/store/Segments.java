@@ -0,0 +1,41 @@
+package com.mvc.store;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Segment files of a store directory, shared by the structure seed and result stores. Several
+processes may write to one store, so a segment name holds the time, an id of the writing process
+and a per process sequence number: names never collide and still sort in the order they were
+written.
+*/
+final class Segments {
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".bin";
+    private static final String PROCESS = Long.toHexString(ProcessHandle.current().pid()) + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private Segments() {
+    }
+
+    // complete segments in the order they were written
+    static File[] list(File directory) {
+        File[] segments = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX) && !name.contains("merging"));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    static File next(File directory) {
+        return new File(directory, String.format("%s%013d-%s-%06d%s", PREFIX, System.currentTimeMillis(), PROCESS, sequence.getAndIncrement(), SUFFIX));
+    }
+
+    // where compaction writes before the merged segment is renamed into place, one file per process
+    static File merging(File directory) {
+        return new File(directory, PREFIX + "merging-" + PROCESS + SUFFIX);
+    }
+}
@@ -0,0 +1,247 @@
+package com.mvc.store;
+
+import com.seedfinding.mccore.state.Dimension;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+Persisted output of the structure phase.
+
+The store is a directory of segment files. Every segment holds fixed width records
+(structure seed followed by POSITION_COUNT packed positions) sorted by seed. Segments are
+only ever added at a checkpoint together with the progress file, so a killed phase 1 resumes
+from the last checkpoint without losing or duplicating records. Readers merge all segments
+in seed order and drop duplicates, which makes the store safe to read while it is being
+appended to and from several biome phase runs at once.
+*/
+public class StructureSeedStore {
+    public static final int POSITION_COUNT = 2;
+
+    private static final long SEED_MASK = (1L << 48) - 1;
+    private static final int MAGIC = 0x53534453;
+    private static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_BUFFERED_RECORDS = 1 << 16;
+
+    private final File directory;
+    private final Dimension dimension;
+    private final ProgressFile progress;
+
+    public StructureSeedStore(File directory, Dimension dimension) {
+        this.directory = directory;
+        this.dimension = dimension;
+        this.progress = new ProgressFile(new File(directory, "progress"));
+    }
+
+    // number of input seeds phase 1 had fully processed at its last checkpoint
+    public long loadProgress() throws IOException {
+        return progress.read(0L);
+    }
+
+    public Writer openWriter() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create structure seed store " + directory);
+        }
+        return new Writer();
+    }
+
+    public Reader openReader() throws IOException {
+        File[] segments = Segments.list(directory);
+        if (segments.length == 0) {
+            throw new FileNotFoundException("No structure seed segments in " + directory + ", run the STRUCTURE phase first");
+        }
+        return new Reader(segments);
+    }
+
+    // merges every segment into one so readers stay cheap after long or resumed runs
+    public void compact() throws IOException {
+        File[] segments = Segments.list(directory);
+        if (segments.length < 2) {
+            return;
+        }
+
+        File merged = Segments.merging(directory);
+        long[] positions = new long[POSITION_COUNT];
+        try (Reader reader = new Reader(segments); DataOutputStream out = openSegment(merged)) {
+            while (reader.next()) {
+                reader.positions(positions);
+                writeRecord(out, reader.seed(), positions);
+            }
+        }
+
+        // the merged segment is renamed into place before the inputs are removed, a crash in
+        // between only leaves duplicates behind which readers skip
+        File target = Segments.next(directory);
+        if (!merged.renameTo(target)) {
+            throw new IOException("Could not rename " + merged + " to " + target);
+        }
+        for (File segment : segments) {
+            if (!segment.delete()) {
+                throw new IOException("Could not delete compacted segment " + segment);
+            }
+        }
+    }
+
+    private DataOutputStream openSegment(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(dimension.ordinal());
+        out.writeInt(POSITION_COUNT);
+        return out;
+    }
+
+    private static void writeRecord(DataOutputStream out, long seed, long[] positions) throws IOException {
+        out.writeLong(seed);
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            out.writeLong(positions[i]);
+        }
+    }
+
+    public class Writer implements Closeable {
+        private final long[] seeds = new long[MAX_BUFFERED_RECORDS];
+        private final long[] positions = new long[MAX_BUFFERED_RECORDS * POSITION_COUNT];
+        private final long[] order = new long[MAX_BUFFERED_RECORDS];
+        private int size = 0;
+
+        private Writer() {
+        }
+
+        public void append(long seed, long[] recordPositions) {
+            seeds[size] = seed & SEED_MASK;
+            System.arraycopy(recordPositions, 0, positions, size * POSITION_COUNT, POSITION_COUNT);
+            size++;
+        }
+
+        public boolean isFull() {
+            return size == MAX_BUFFERED_RECORDS;
+        }
+
+        // writes buffered records as a new sorted segment, then records how far the input got
+        public void checkpoint(long seedsProcessed) throws IOException {
+            flush();
+            progress.write(seedsProcessed);
+        }
+
+        // writes buffered records as a new sorted segment without recording progress, a resumed run appends them again
+        public void flush() throws IOException {
+            if (size > 0) {
+                // structure seeds are 48 bit, so seed and buffer index fit one unsigned sort key
+                for (int i = 0; i < size; i++) {
+                    order[i] = ((seeds[i] << 16) | i) ^ Long.MIN_VALUE;
+                }
+                Arrays.sort(order, 0, size);
+
+                File segment = Segments.next(directory);
+                File tmp = new File(segment.getPath() + ".tmp");
+                try (DataOutputStream out = openSegment(tmp)) {
+                    for (int i = 0; i < size; i++) {
+                        int index = (int) (order[i] & 0xFFFF);
+                        out.writeLong(seeds[index]);
+                        for (int p = 0; p < POSITION_COUNT; p++) {
+                            out.writeLong(positions[index * POSITION_COUNT + p]);
+                        }
+                    }
+                }
+                if (!tmp.renameTo(segment)) {
+                    throw new IOException("Could not rename " + tmp + " to " + segment);
+                }
+                size = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (size > 0) {
+                throw new IllegalStateException(size + " structure seeds were not checkpointed");
+            }
+        }
+    }
+
+    public class Reader implements Closeable {
+        private final ArrayList<DataInputStream> inputs = new ArrayList<>();
+        private final long[] heads;
+        private final long[] headPositions;
+        private final boolean[] exhausted;
+        private long seed = -1;
+        private int current = -1;
+
+        private Reader(File[] segments) throws IOException {
+            heads = new long[segments.length];
+            headPositions = new long[segments.length * POSITION_COUNT];
+            exhausted = new boolean[segments.length];
+
+            for (int i = 0; i < segments.length; i++) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segments[i]), BUFFER_SIZE));
+                inputs.add(in);
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    close();
+                    throw new IOException(segments[i] + " is not a structure seed segment");
+                }
+                int segmentDimension = in.readInt();
+                int segmentPositions = in.readInt();
+                if (segmentDimension != dimension.ordinal() || segmentPositions != POSITION_COUNT) {
+                    close();
+                    throw new IOException(segments[i] + " was written for " + Dimension.values()[segmentDimension] + ", expected " + dimension);
+                }
+                advance(i);
+            }
+        }
+
+        public boolean next() throws IOException {
+            while (true) {
+                current = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (!exhausted[i] && (current == -1 || heads[i] < heads[current])) {
+                        current = i;
+                    }
+                }
+                if (current == -1) {
+                    return false;
+                }
+
+                long candidate = heads[current];
+                if (candidate == seed) {
+                    // same seed from an overlapping run
+                    advance(current);
+                    continue;
+                }
+
+                seed = candidate;
+                return true;
+            }
+        }
+
+        public long seed() {
+            return seed;
+        }
+
+        public void positions(long[] target) throws IOException {
+            System.arraycopy(headPositions, current * POSITION_COUNT, target, 0, POSITION_COUNT);
+            advance(current);
+            current = -1;
+        }
+
+        private void advance(int segment) throws IOException {
+            DataInputStream in = inputs.get(segment);
+            try {
+                heads[segment] = in.readLong();
+                for (int p = 0; p < POSITION_COUNT; p++) {
+                    headPositions[segment * POSITION_COUNT + p] = in.readLong();
+                }
+            } catch (EOFException e) {
+                // a segment still being written by phase 1 is only ever renamed into place complete
+                exhausted[segment] = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+}
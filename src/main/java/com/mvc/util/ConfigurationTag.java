@@ -0,0 +1,17 @@
+package com.mvc.util;
+
+import java.nio.charset.StandardCharsets;
+
+// File name for a configuration string, the 64 bit FNV-1a hash in hex: files named by it only ever hold results of that configuration
+public final class ConfigurationTag {
+    private ConfigurationTag() {
+    }
+
+    public static String of(String configuration) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : configuration.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return String.format("%016x", hash);
+    }
+}
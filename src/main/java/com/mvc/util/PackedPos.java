@@ -0,0 +1,53 @@
+package com.mvc.util;
+
+import com.seedfinding.mccore.util.pos.CPos;
+
+// Chunk/block positions packed into a single long: high 32 bits x, low 32 bits z
+public final class PackedPos {
+    public static final long NONE = Long.MIN_VALUE;
+
+    private PackedPos() {
+    }
+
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static long pack(CPos pos) {
+        return pos == null ? NONE : pack(pos.getX(), pos.getZ());
+    }
+
+    public static int x(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int z(long packed) {
+        return (int) packed;
+    }
+
+    public static long distanceSq(long a, long b) {
+        long dx = x(a) - x(b);
+        long dz = z(a) - z(b);
+        return dx * dx + dz * dz;
+    }
+
+    // same as CPos.getMagnitude() <= distance without the square root
+    public static boolean isWithin(long packed, int distance) {
+        return isWithinSq(packed, (long) distance * distance);
+    }
+
+    // for filters that square their distances once up front
+    public static boolean isWithinSq(long packed, long distanceSq) {
+        long x = x(packed);
+        long z = z(packed);
+        return packed != NONE && x * x + z * z <= distanceSq;
+    }
+
+    public static CPos toCPos(long packed) {
+        return packed == NONE ? null : new CPos(x(packed), z(packed));
+    }
+
+    public static String toString(long packed) {
+        return packed == NONE ? "none" : "[" + x(packed) + ", " + z(packed) + "]";
+    }
+}
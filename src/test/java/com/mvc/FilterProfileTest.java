@@ -0,0 +1,35 @@
+package com.mvc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterProfileTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void rankedProfileNeedsTopK() throws IOException {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> load("rank=DISTANCE\ntop_k=0\n"));
+        assertTrue(e.getMessage().contains("top_k"), e.getMessage());
+    }
+
+    @Test
+    void unrankedProfileIgnoresTopK() throws IOException {
+        assertEquals(0, load("rank=NONE\ntop_k=0\n").getTopK());
+    }
+
+    private FilterProfile load(String properties) throws IOException {
+        File file = new File(directory, "test.properties");
+        Files.write(file.toPath(), ("results=none\n" + properties).getBytes(StandardCharsets.UTF_8));
+        return FilterProfile.load(file);
+    }
+}
@@ -0,0 +1,86 @@
+package com.mvc.engine;
+
+import com.mvc.source.RangeSeedSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchQueueTest {
+    @Test
+    void countsTheContiguousPrefixOnly() throws Exception {
+        BatchQueue queue = start(100, 1000, 4, 3);
+        BatchQueue.Batch first = queue.take();
+        BatchQueue.Batch second = queue.take();
+        BatchQueue.Batch third = queue.take();
+        assertEquals(100, first.get(0));
+        assertEquals(104, second.get(0));
+
+        queue.release(second, second.size());
+        assertEquals(0, queue.getCompletedSeeds(), "a batch ahead of the prefix must wait");
+        assertEquals(-1, queue.getCompletedLastSeed());
+        queue.release(first, first.size());
+        assertEquals(8, queue.getCompletedSeeds());
+        assertEquals(107, queue.getCompletedLastSeed());
+        queue.release(third, third.size());
+        assertEquals(12, queue.getCompletedSeeds());
+        queue.stop();
+    }
+
+    @Test
+    void partialBatchEndsThePrefix() throws Exception {
+        BatchQueue queue = start(0, 1000, 4, 2);
+        BatchQueue.Batch first = queue.take();
+        BatchQueue.Batch second = queue.take();
+        queue.release(first, 2);
+        assertEquals(2, queue.getCompletedSeeds());
+        assertEquals(1, queue.getCompletedLastSeed());
+
+        queue.release(second, second.size());
+        BatchQueue.Batch third = queue.take();
+        queue.release(third, third.size());
+        assertEquals(2, queue.getCompletedSeeds(), "nothing after an unfinished batch counts");
+        queue.stop();
+    }
+
+    @Test
+    void failedBatchCountsNothing() throws Exception {
+        BatchQueue queue = start(0, 1000, 4, 2);
+        BatchQueue.Batch first = queue.take();
+        BatchQueue.Batch second = queue.take();
+        queue.release(second, second.size());
+        queue.release(first, 0);
+        assertEquals(0, queue.getCompletedSeeds());
+        queue.stop();
+    }
+
+    @Test
+    void drainsTheSourceThenReturnsNull() throws Exception {
+        BatchQueue queue = start(0, 10, 4, 2);
+        long seeds = 0;
+        BatchQueue.Batch batch;
+        while ((batch = queue.take()) != null) {
+            seeds += batch.size();
+            queue.release(batch, batch.size());
+        }
+        assertEquals(10, seeds);
+        assertEquals(10, queue.getCompletedSeeds());
+        assertEquals(9, queue.getCompletedLastSeed());
+        assertNull(queue.take(), "every worker sees the end");
+        queue.stop();
+    }
+
+    @Test
+    void stoppedQueueHandsOutNoBatches() throws Exception {
+        BatchQueue queue = start(0, 1000, 4, 2);
+        queue.stop();
+        assertNull(queue.take());
+        assertNull(queue.take());
+    }
+
+    private static BatchQueue start(long start, long end, int batchSize, int capacity) {
+        BatchQueue queue = new BatchQueue(new RangeSeedSource(start, end), batchSize, capacity);
+        queue.start();
+        return queue;
+    }
+}
@@ -0,0 +1,57 @@
+package com.mvc.engine;
+
+import com.mvc.FilterProfile;
+import com.mvc.store.CheckedSeedIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchSinkTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void checkedCoverageStopsWhenAProfileIsDone() throws IOException {
+        FilterProfile[] profiles = {profile("a", 1), profile("b", 100)};
+        AtomicLong seedsDone = new AtomicLong();
+        File indexDirectory = new File(directory, "index");
+        try (CheckedSeedIndex index = new CheckedSeedIndex(indexDirectory, "test", 1 << 10, 3, 16)) {
+            index.setSeedCoverage(0);
+            MatchSink sink = MatchSink.forOutputs(profiles, false);
+            sink.setSeedsDone(seedsDone::get);
+            sink.setCheckedIndex(index);
+
+            seedsDone.set(10);
+            sink.checkpoint(10, -1);
+            seedsDone.set(20);
+            sink.writeMatch(0, 15, new long[0], "15\n"); // profile a is done, its later matches are dropped
+            sink.writeMatch(1, 25, new long[0], "25\n");
+            seedsDone.set(50);
+            sink.checkpoint(50, -1);
+            sink.close();
+        }
+
+        try (CheckedSeedIndex index = new CheckedSeedIndex(indexDirectory, "test", 1 << 10, 3, 16)) {
+            assertTrue(index.skip(0));
+            assertTrue(index.skip(19));
+            assertFalse(index.skip(20), "seeds after profile a was done must be checked again");
+            assertFalse(index.skip(49));
+        }
+    }
+
+    private FilterProfile profile(String name, int seedMatches) throws IOException {
+        File file = new File(directory, name + ".properties");
+        String properties = "output=" + new File(directory, name + ".txt").getPath().replace('\\', '/') + "\n"
+                + "results=none\nrank=NONE\nseed_matches=" + seedMatches + "\n";
+        Files.write(file.toPath(), properties.getBytes(StandardCharsets.UTF_8));
+        return FilterProfile.load(file);
+    }
+}
@@ -0,0 +1,115 @@
+package com.mvc.engine;
+
+import com.mvc.store.ResultStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKTest {
+    private static final long[] NO_COLUMNS = new long[ResultStore.COLUMN_COUNT];
+
+    @TempDir
+    File directory;
+
+    @Test
+    void keepsTheLowestScoresWithTiesToTheLowerSeed() {
+        TopK best = new TopK(3);
+        best.offer(5, 50, NO_COLUMNS);
+        best.offer(1, 10, NO_COLUMNS);
+        best.offer(3, 31, NO_COLUMNS);
+        best.offer(3, 30, NO_COLUMNS);
+        best.offer(9, 90, NO_COLUMNS);
+        assertArrayEquals(new long[]{10, 30, 31}, seeds(best));
+        assertFalse(best.accepts(3, 32));
+        assertTrue(best.accepts(3, 29));
+    }
+
+    @Test
+    void rejectsASeedItAlreadyKeeps() {
+        TopK best = new TopK(4);
+        assertTrue(best.offer(2, 7, NO_COLUMNS));
+        assertFalse(best.offer(2, 7, NO_COLUMNS));
+        assertEquals(1, best.size());
+    }
+
+    // seeds with equal score are offered again after evictions, the seed index has to follow every removal
+    @Test
+    void matchesASortedReferenceAcrossEvictionsAndMerges() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 200; trial++) {
+            int capacity = 1 + random.nextInt(50);
+            int range = 1 + random.nextInt(300);
+            TopK best = new TopK(capacity);
+            TreeMap<Long, Double> all = new TreeMap<>();
+            for (int i = 0; i < 2000; i++) {
+                long seed = random.nextInt(range) * (random.nextBoolean() ? 1L : 0x100000001L);
+                double score = seed * 31 % 17;
+                best.offer(score, seed, NO_COLUMNS);
+                all.put(seed, score);
+                if (i % 500 == 499) {
+                    TopK merged = new TopK(capacity);
+                    merged.addAll(best);
+                    merged.addAll(best);
+                    best = merged;
+                }
+            }
+
+            ArrayList<Map.Entry<Long, Double>> expected = new ArrayList<>(all.entrySet());
+            expected.sort(Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())));
+            long[] seeds = seeds(best);
+            assertEquals(Math.min(capacity, expected.size()), seeds.length, "trial " + trial);
+            for (int i = 0; i < seeds.length; i++) {
+                assertEquals((long) expected.get(i).getKey(), seeds[i], "trial " + trial + " rank " + i);
+            }
+        }
+    }
+
+    @Test
+    void clearForgetsEverySeed() {
+        TopK best = new TopK(2);
+        best.offer(1, 1, NO_COLUMNS);
+        best.offer(2, 2, NO_COLUMNS);
+        best.clear();
+        assertEquals(0, best.size());
+        assertTrue(best.offer(1, 1, NO_COLUMNS));
+    }
+
+    @Test
+    void writeAndReadRoundTrip() throws IOException {
+        TopK best = new TopK(3);
+        long[] columns = new long[ResultStore.COLUMN_COUNT];
+        for (int i = 0; i < 5; i++) {
+            columns[0] = i * 100;
+            best.offer(i, i, columns);
+        }
+        File file = new File(directory, "ranking.rank");
+        best.write(file);
+
+        TopK read = new TopK(2);
+        read.read(file);
+        assertArrayEquals(new long[]{0, 1}, seeds(read));
+        read.columns(read.sortedSlots()[1], columns);
+        assertEquals(100, columns[0]);
+    }
+
+    private static long[] seeds(TopK best) {
+        int[] slots = best.sortedSlots();
+        long[] seeds = new long[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            seeds[i] = best.seed(slots[i]);
+        }
+        return seeds;
+    }
+}
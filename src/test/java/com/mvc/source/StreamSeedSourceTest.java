@@ -0,0 +1,75 @@
+package com.mvc.source;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamSeedSourceTest {
+    @Test
+    void readsWhitespaceSeparatedSeeds() throws IOException {
+        assertArrayEquals(new long[]{1, -2, 30, 4}, readAll("1 -2\n\t30\r\n4"));
+    }
+
+    @Test
+    void readsTheFullLongRange() throws IOException {
+        assertArrayEquals(new long[]{Long.MAX_VALUE, Long.MIN_VALUE}, readAll(Long.MAX_VALUE + " " + Long.MIN_VALUE));
+    }
+
+    @Test
+    void skipsTheRestOfATextLine() throws IOException {
+        assertArrayEquals(new long[]{5, 6}, readAll("# seeds\n5 [Pos{x=1, z=2}] 99\nnot a seed 7\n6"));
+    }
+
+    @Test
+    void endsANumberAtItsFirstNonDigit() throws IOException {
+        assertArrayEquals(new long[]{123, 12, 8}, readAll("123,456,789\n12ab 3\n8: cut off ship"));
+    }
+
+    @Test
+    void readsBytesAboveAsciiAsText() throws IOException {
+        assertArrayEquals(new long[]{1, 2}, readAll("1 # éÿ 3\n2"));
+    }
+
+    @Test
+    void reportsOverflowWithItsLine() {
+        IOException e = assertThrows(IOException.class, () -> readAll("1\n2\n9223372036854775808"));
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+        assertThrows(IOException.class, () -> readAll("-9223372036854775809"));
+        assertThrows(IOException.class, () -> readAll("99999999999999999999999"));
+    }
+
+    @Test
+    void fillsBatchesAndEndsWithMinusOne() throws IOException {
+        StreamSeedSource source = new StreamSeedSource(input("1 2 3 4 5"));
+        long[] batch = new long[2];
+        assertEquals(2, source.next(batch));
+        assertEquals(2, source.next(batch));
+        assertEquals(1, source.next(batch));
+        assertEquals(5, batch[0]);
+        assertEquals(-1, source.next(batch));
+    }
+
+    private static long[] readAll(String text) throws IOException {
+        StreamSeedSource source = new StreamSeedSource(input(text));
+        long[] seeds = new long[0];
+        long[] batch = new long[3];
+        int count;
+        while ((count = source.next(batch)) > 0) {
+            seeds = Arrays.copyOf(seeds, seeds.length + count);
+            System.arraycopy(batch, 0, seeds, seeds.length - count, count);
+        }
+        return seeds;
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
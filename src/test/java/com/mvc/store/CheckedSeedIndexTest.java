@@ -0,0 +1,112 @@
+package com.mvc.store;
+
+import com.mvc.util.SeedPermutation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckedSeedIndexTest {
+    private static final String CONFIGURATION = "test";
+
+    @TempDir
+    File directory;
+
+    @Test
+    void mergesTouchingAndOverlappingRanges() throws IOException {
+        // more disjoint ranges than the set starts with, then ranges bridging them
+        for (long start = 0; start < 100; start += 20) {
+            recordSeeds(start, 10);
+        }
+        recordSeeds(10, 10);
+        recordSeeds(35, 30);
+        assertEquals(List.of("seeds 0 30", "seeds 35 70", "seeds 80 90"), rangeLines());
+
+        try (CheckedSeedIndex index = open()) {
+            for (long seed = 0; seed < 100; seed++) {
+                boolean covered = seed < 30 || seed >= 35 && seed < 70 || seed >= 80 && seed < 90;
+                assertEquals(covered, index.skip(seed), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void recordsPermutationIndexRangesByKey() throws IOException {
+        SeedPermutation permutation = new SeedPermutation(99);
+        try (CheckedSeedIndex index = open()) {
+            index.setPermutationCoverage(99, 1000);
+            index.checkpoint(50);
+        }
+        try (CheckedSeedIndex index = open()) {
+            assertFalse(index.skip(permutation.seedAt(999)));
+            assertTrue(index.skip(permutation.seedAt(1000)));
+            assertTrue(index.skip(permutation.seedAt(1049)));
+            assertFalse(index.skip(permutation.seedAt(1050)));
+            assertEquals(2, index.getSkipped());
+        }
+    }
+
+    @Test
+    void sparseSeedsAreOnlyRecordedAtCheckpoints() throws IOException {
+        try (CheckedSeedIndex index = open()) {
+            index.add(123);
+            index.add(456);
+            assertFalse(index.skip(123));
+            index.checkpoint(0);
+            assertTrue(index.skip(123));
+            assertTrue(index.skip(456));
+        }
+        try (CheckedSeedIndex index = open()) {
+            assertTrue(index.skip(456));
+            assertFalse(index.skip(789));
+        }
+    }
+
+    @Test
+    void fullBufferRefusesSeedsUntilCheckpointed() throws IOException {
+        try (CheckedSeedIndex index = open()) {
+            for (int i = 0; i < 4; i++) {
+                index.add(i);
+            }
+            assertTrue(index.isFull());
+            assertThrows(IllegalStateException.class, () -> index.add(4));
+            index.checkpoint(0);
+            assertFalse(index.isFull());
+            index.add(4);
+        }
+    }
+
+    @Test
+    void otherConfigurationsOpenAnotherIndex() throws IOException {
+        recordSeeds(0, 10);
+        try (CheckedSeedIndex index = new CheckedSeedIndex(directory, "other", 1 << 10, 3, 4)) {
+            assertFalse(index.skip(5));
+        }
+    }
+
+    private CheckedSeedIndex open() throws IOException {
+        return new CheckedSeedIndex(directory, CONFIGURATION, 1 << 10, 3, 4);
+    }
+
+    private void recordSeeds(long start, long count) throws IOException {
+        try (CheckedSeedIndex index = open()) {
+            index.setSeedCoverage(start);
+            index.checkpoint(count);
+        }
+    }
+
+    private List<String> rangeLines() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".ranges"));
+        assertEquals(1, files.length);
+        return Files.readAllLines(files[0].toPath(), StandardCharsets.UTF_8);
+    }
+}
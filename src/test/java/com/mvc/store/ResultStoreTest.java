@@ -0,0 +1,86 @@
+package com.mvc.store;
+
+import com.mvc.util.PackedPos;
+import com.seedfinding.mccore.state.Dimension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultStoreTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void writerRefusesSeedsItAlreadyHolds() throws IOException {
+        ResultStore store = new ResultStore(directory, Dimension.NETHER);
+        try (ResultStore.Writer writer = store.openWriter()) {
+            assertTrue(writer.append(-5, columns(1)));
+            assertFalse(writer.append(-5, columns(2)), "pending seed");
+            writer.flush();
+            assertFalse(writer.append(-5, columns(3)), "flushed seed");
+            assertTrue(writer.append(Long.MAX_VALUE, columns(4)));
+        }
+        try (ResultStore.Writer writer = store.openWriter()) {
+            assertFalse(writer.append(-5, columns(5)), "seed of an earlier run");
+            assertTrue(writer.append(Long.MIN_VALUE, columns(6)));
+        }
+
+        assertEquals(List.of(Long.MIN_VALUE, -5L, Long.MAX_VALUE), seeds(store));
+        long[] found = new long[ResultStore.COLUMN_COUNT];
+        assertTrue(store.find(-5, found));
+        assertEquals(PackedPos.pack(1, -1), found[0]);
+        assertEquals(PackedPos.NONE, found[ResultStore.COLUMN_COUNT - 1]);
+        assertFalse(store.find(0, found));
+    }
+
+    @Test
+    void concurrentWritersStayReadableAndCompact() throws IOException {
+        ResultStore store = new ResultStore(directory, Dimension.NETHER);
+        ResultStore.Writer first = store.openWriter();
+        ResultStore.Writer second = store.openWriter();
+        first.append(1, columns(1));
+        first.append(3, columns(3));
+        second.append(2, columns(2));
+        second.append(3, columns(3)); // neither writer saw the other's seed
+        first.flush();
+        second.flush();
+
+        assertEquals(2, Segments.list(directory).length, "segment names must not collide");
+        assertEquals(List.of(1L, 2L, 3L), seeds(store));
+        store.compact();
+        assertEquals(1, Segments.list(directory).length);
+        assertEquals(List.of(1L, 2L, 3L), seeds(store));
+    }
+
+    @Test
+    void openReadsTheDimensionFromTheSegments() throws IOException {
+        try (ResultStore.Writer writer = new ResultStore(directory, Dimension.END).openWriter()) {
+            writer.append(1, columns(1));
+        }
+        assertEquals(Dimension.END, ResultStore.open(directory).getDimension());
+        assertThrows(IOException.class, () -> seeds(new ResultStore(directory, Dimension.NETHER)));
+    }
+
+    private static long[] columns(int value) {
+        return new long[]{PackedPos.pack(value, -value)};
+    }
+
+    private static List<Long> seeds(ResultStore store) throws IOException {
+        List<Long> seeds = new ArrayList<>();
+        try (ResultStore.Reader reader = store.openReader()) {
+            while (reader.next()) {
+                seeds.add(reader.seed());
+            }
+        }
+        return seeds;
+    }
+}
@@ -0,0 +1,95 @@
+package com.mvc.store;
+
+import com.seedfinding.mccore.state.Dimension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StructureSeedStoreTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void readsEverySegmentMergedInSeedOrder() throws IOException {
+        StructureSeedStore store = new StructureSeedStore(directory, Dimension.NETHER);
+        StructureSeedStore.Writer writer = store.openWriter();
+        writer.append(30, new long[]{3, 33});
+        writer.append(10, new long[]{1, 11});
+        writer.checkpoint(100);
+        writer.append(20, new long[]{2, 22});
+        writer.append((1L << 50) | 40, new long[]{4, 44}); // only the 48 bit structure seed is kept
+        writer.checkpoint(200);
+        writer.close();
+
+        assertEquals(200, store.loadProgress());
+        assertEquals(List.of(10L, 1L, 11L, 20L, 2L, 22L, 30L, 3L, 33L, 40L, 4L, 44L), readAll(store));
+    }
+
+    @Test
+    void dropsSeedsStoredTwice() throws IOException {
+        StructureSeedStore store = new StructureSeedStore(directory, Dimension.NETHER);
+        StructureSeedStore.Writer writer = store.openWriter();
+        writer.append(5, new long[]{1, 2});
+        writer.checkpoint(10);
+        // a resumed run appends the seeds after the last checkpoint again
+        writer.append(5, new long[]{1, 2});
+        writer.append(6, new long[]{3, 4});
+        writer.checkpoint(20);
+
+        assertEquals(List.of(5L, 1L, 2L, 6L, 3L, 4L), readAll(store));
+        store.compact();
+        assertEquals(1, Segments.list(directory).length);
+        assertEquals(List.of(5L, 1L, 2L, 6L, 3L, 4L), readAll(store));
+    }
+
+    @Test
+    void flushKeepsTheProgress() throws IOException {
+        StructureSeedStore store = new StructureSeedStore(directory, Dimension.NETHER);
+        StructureSeedStore.Writer writer = store.openWriter();
+        writer.checkpoint(50);
+        writer.append(7, new long[]{0, 0});
+        writer.flush();
+        writer.close();
+
+        assertEquals(50, store.loadProgress());
+        assertEquals(List.of(7L, 0L, 0L), readAll(store));
+    }
+
+    @Test
+    void closeRefusesUnwrittenSeeds() throws IOException {
+        StructureSeedStore.Writer writer = new StructureSeedStore(directory, Dimension.NETHER).openWriter();
+        writer.append(1, new long[]{0, 0});
+        assertThrows(IllegalStateException.class, writer::close);
+    }
+
+    @Test
+    void readerRefusesAnotherDimension() throws IOException {
+        StructureSeedStore.Writer writer = new StructureSeedStore(directory, Dimension.NETHER).openWriter();
+        writer.append(1, new long[]{0, 0});
+        writer.checkpoint(1);
+        assertThrows(IOException.class, () -> new StructureSeedStore(directory, Dimension.OVERWORLD).openReader());
+    }
+
+    // seed followed by its positions, for every record
+    private static List<Long> readAll(StructureSeedStore store) throws IOException {
+        List<Long> values = new ArrayList<>();
+        long[] positions = new long[StructureSeedStore.POSITION_COUNT];
+        try (StructureSeedStore.Reader reader = store.openReader()) {
+            while (reader.next()) {
+                values.add(reader.seed());
+                reader.positions(positions);
+                for (long position : positions) {
+                    values.add(position);
+                }
+            }
+        }
+        return values;
+    }
+}
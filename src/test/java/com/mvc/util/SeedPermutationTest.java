@@ -0,0 +1,51 @@
+package com.mvc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeedPermutationTest {
+    @Test
+    void indexOfInvertsSeedAt() {
+        SeedPermutation permutation = new SeedPermutation(0x5EED);
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long index = random.nextLong() & (SeedPermutation.SIZE - 1);
+            long seed = permutation.seedAt(index);
+            assertTrue(seed >= 0 && seed < SeedPermutation.SIZE, "seed " + seed + " is not a structure seed");
+            assertEquals(index, permutation.indexOf(seed));
+            assertEquals(seed, permutation.seedAt(permutation.indexOf(seed)));
+        }
+    }
+
+    @Test
+    void neverRepeatsASeed() {
+        SeedPermutation permutation = new SeedPermutation(42);
+        HashSet<Long> seen = new HashSet<>();
+        for (long index = 0; index < 1 << 18; index++) {
+            assertTrue(seen.add(permutation.seedAt(index)), "index " + index + " repeats a seed");
+        }
+        for (long index = SeedPermutation.SIZE - (1 << 10); index < SeedPermutation.SIZE; index++) {
+            assertTrue(seen.add(permutation.seedAt(index)), "index " + index + " repeats a seed");
+        }
+    }
+
+    @Test
+    void orderIsDeterminedByTheKey() {
+        SeedPermutation first = new SeedPermutation(7);
+        SeedPermutation replay = new SeedPermutation(7);
+        SeedPermutation other = new SeedPermutation(8);
+        int differences = 0;
+        for (long index = 0; index < 1000; index++) {
+            assertEquals(first.seedAt(index), replay.seedAt(index));
+            if (first.seedAt(index) != other.seedAt(index)) {
+                differences++;
+            }
+        }
+        assertTrue(differences > 990, "keys 7 and 8 share " + (1000 - differences) + " of 1000 seeds");
+    }
+}